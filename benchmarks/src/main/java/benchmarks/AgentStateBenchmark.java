@@ -0,0 +1,81 @@
+package benchmarks;
+
+import benchmarks.StubFlows.BenchState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import state.PersistentStateMap;
+import state.StateDelta;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// What every graph step pays for state handling, as a function of state size
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class AgentStateBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int stateKeys;
+
+    private BenchState state;
+    private Map<String, Object> oneKeyUpdate;
+    private Map<String, Object> oneKeyChanged;
+    private PersistentStateMap persistent;
+
+    @Setup
+    public void setUp() {
+        state = new BenchState(StubFlows.data(stateKeys));
+        oneKeyUpdate = Map.of("key-0", "changed");
+        oneKeyChanged = new HashMap<>(state.data());
+        oneKeyChanged.putAll(oneKeyUpdate);
+        persistent = PersistentStateMap.of(state.data());
+    }
+
+    // A node's state object is rebuilt from the data map before every step
+    @Benchmark
+    public BenchState copyState() {
+        return new BenchState(state.data());
+    }
+
+    // A node returning its full data map, merged back into the running state
+    @Benchmark
+    public Map<String, Object> mergeFullState() {
+        Map<String, Object> merged = new HashMap<>(state.data());
+        merged.putAll(state.data());
+        return merged;
+    }
+
+    // The same step when the node returns only what it changed
+    @Benchmark
+    public Map<String, Object> mergeOneKey() {
+        Map<String, Object> merged = new HashMap<>(state.data());
+        merged.putAll(oneKeyUpdate);
+        return merged;
+    }
+
+    // Diff a full-state node result down to its delta, as the sync node adapter does
+    @Benchmark
+    public StateDelta diffFullState() {
+        return StateDelta.between(state.data(), oneKeyChanged);
+    }
+
+    // Derive the next version of a structurally shared map, as retained checkpoints do
+    @Benchmark
+    public PersistentStateMap persistentOneKey() {
+        return persistent.with(oneKeyUpdate);
+    }
+}
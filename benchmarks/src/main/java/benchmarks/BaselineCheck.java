@@ -0,0 +1,72 @@
+package benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files and fails when a benchmark got slower than allowed.
+ * <p>
+ * Usage: {@code BaselineCheck <baseline.json> <current.json> [maxRegressionPercent=10]}.
+ * Record a baseline per release with {@code -rf json -rff baseline.json} and compare every
+ * candidate against it. Only time-per-operation modes (avgt, sample, ss) are compared.
+ * </p>
+ */
+public final class BaselineCheck {
+
+    private BaselineCheck() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineCheck <baseline.json> <current.json> [maxRegressionPercent]");
+            System.exit(2);
+        }
+        double allowed = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, Double> baseline = scores(Path.of(args[0]));
+        Map<String, Double> current = scores(Path.of(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            Double before = baseline.get(entry.getKey());
+            if (before == null || before == 0) {
+                System.out.printf("NEW   %-90s %12.3f%n", entry.getKey(), entry.getValue());
+                continue;
+            }
+            double change = (entry.getValue() - before) / before * 100.0;
+            boolean regressed = change > allowed;
+            if (regressed) regressions++;
+            System.out.printf("%-5s %-90s %12.3f -> %12.3f (%+.1f%%)%n",
+                    regressed ? "SLOW" : "OK", entry.getKey(), before, entry.getValue(), change);
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, allowed);
+            System.exit(1);
+        }
+    }
+
+    // "benchmark{param=value,...}" -> score
+    private static Map<String, Double> scores(Path file) throws IOException {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            String mode = result.path("mode").asText();
+            if (!mode.equals("avgt") && !mode.equals("sample") && !mode.equals("ss")) continue;
+
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()).append('{');
+            JsonNode params = result.path("params");
+            for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = it.next();
+                key.append(param.getKey()).append('=').append(param.getValue().asText());
+                if (it.hasNext()) key.append(',');
+            }
+            scores.put(key.append('}').toString(), result.path("primaryMetric").path("score").asDouble());
+        }
+        return scores;
+    }
+}
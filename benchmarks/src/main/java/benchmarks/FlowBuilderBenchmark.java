@@ -0,0 +1,70 @@
+package benchmarks;
+
+import benchmarks.StubFlows.BenchState;
+import dsl.FlowBuilder;
+import engine.GraphExecutor;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of turning a definition into a compiled graph (startup and redeploy time per workflow)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class FlowBuilderBenchmark {
+    private GenericApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StubFlows.context();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CompiledGraph<BenchState> buildLinear() {
+        FlowBuilder<BenchState> builder = StubFlows.builder(context);
+        StubFlows.linear(builder);
+        return builder.build();
+    }
+
+    @Benchmark
+    public GraphExecutor<BenchState> buildLinearNative() {
+        FlowBuilder<BenchState> builder = StubFlows.builder(context);
+        StubFlows.linear(builder);
+        return builder.buildNative();
+    }
+
+    @Benchmark
+    public CompiledGraph<BenchState> buildChoice() {
+        FlowBuilder<BenchState> builder = StubFlows.builder(context);
+        StubFlows.choice(builder);
+        return builder.build();
+    }
+
+    @Benchmark
+    public CompiledGraph<BenchState> buildParallel() {
+        FlowBuilder<BenchState> builder = StubFlows.builder(context);
+        StubFlows.parallel(builder);
+        return builder.build();
+    }
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import benchmarks.StubFlows.BenchState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import node.AgentNode;
+import observability.NodeMetrics;
+import observability.RunTrace;
+import observability.TraceRecorder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumentation cost per node call: bare call, the NodeMetrics wrapper FlowBuilder installs,
+ * the same with a trace span recorded for a sampled run, and the AOP-proxy approach it replaced
+ * (an around-advice on a Spring proxy).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class ObservabilityBenchmark {
+    private AgentNode<BenchState> direct;
+    private AgentNode<BenchState> proxied;
+    private NodeMetrics.Meters meters;
+    private RunTrace trace;
+    private BenchState state;
+    private volatile long blackhole;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        direct = new StubFlows.StepA();
+
+        ProxyFactory factory = new ProxyFactory(new StubFlows.StepA());
+        factory.addInterface(AgentNode.class);
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            long start = System.currentTimeMillis();
+            try {
+                return invocation.proceed();
+            } finally {
+                blackhole = System.currentTimeMillis() - start;
+            }
+        });
+        proxied = (AgentNode<BenchState>) factory.getProxy();
+
+        meters = new NodeMetrics(new SimpleMeterRegistry()).node("bench", "1", "StepA");
+        trace = new TraceRecorder(1.0, 256, 0, null).begin("bench-run", "bench", "1");
+        state = new BenchState(Map.of("input", "x"));
+    }
+
+    @Benchmark
+    public BenchState directCall() {
+        return direct.execute(state);
+    }
+
+    @Benchmark
+    public BenchState instrumentedCall() {
+        long start = meters.start();
+        try {
+            return direct.execute(state);
+        } finally {
+            meters.stop(start, null);
+        }
+    }
+
+    @Benchmark
+    public BenchState tracedCall() {
+        long start = meters.start();
+        try {
+            return direct.execute(state);
+        } finally {
+            meters.stop(start, null);
+            trace.record(RunTrace.Kind.NODE, "StepA", start, System.nanoTime(), null, false);
+        }
+    }
+
+    @Benchmark
+    public BenchState proxiedCall() {
+        return proxied.execute(state);
+    }
+}
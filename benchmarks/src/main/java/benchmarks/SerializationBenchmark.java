@@ -0,0 +1,75 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import state.BinaryStateSerializer;
+import state.JacksonStateSerializer;
+import state.StateDelta;
+import state.StateSerializer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// What persisting one graph step costs: full state versus the step's delta, per encoding
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int stateKeys;
+
+    @Param({"BINARY", "JSON"})
+    public String format;
+
+    private StateSerializer serializer;
+    private Map<String, Object> state;
+    private StateDelta oneKeyDelta;
+    private byte[] encodedState;
+    private Map<String, Object> document;
+
+    @Setup
+    public void setUp() {
+        serializer = format.equals("JSON") ? new JacksonStateSerializer() : new BinaryStateSerializer();
+        state = StubFlows.data(stateKeys);
+        oneKeyDelta = new StateDelta(Map.of("key-0", "changed"), Set.of());
+        encodedState = serializer.write(state);
+        // A retrieved document, the kind of value the compression threshold is for
+        document = new HashMap<>(state);
+        document.put("document", "lorem ipsum dolor sit amet ".repeat(2_000));
+    }
+
+    @Benchmark
+    public byte[] writeFullState() {
+        return serializer.write(state);
+    }
+
+    @Benchmark
+    public byte[] writeOneKeyDelta() {
+        return serializer.writeDelta(oneKeyDelta);
+    }
+
+    @Benchmark
+    public Map<String, Object> readFullState() {
+        return serializer.read(encodedState);
+    }
+
+    @Benchmark
+    public byte[] writeLargeString() {
+        return serializer.write(document);
+    }
+}
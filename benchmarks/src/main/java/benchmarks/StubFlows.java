@@ -0,0 +1,116 @@
+package benchmarks;
+
+import dsl.FlowBuilder;
+import dsl.FlowSettings;
+import dsl.WorkflowDefinition;
+import node.AgentNode;
+import node.AgentRouter;
+import org.springframework.context.support.GenericApplicationContext;
+import state.AgentState;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Stub states, nodes and workflow definitions shared by the benchmark suites.
+ * Nodes do no work beyond returning their input, so what gets measured is the framework.
+ */
+final class StubFlows {
+    static final String LINEAR = "linear";
+    static final String CHOICE = "choice";
+    static final String PARALLEL = "parallel";
+
+    private StubFlows() {}
+
+    // The framework lives in other packages and cannot reach this constructor reflectively;
+    // everything creates states through BenchState::new instead
+    static final class BenchState extends AgentState {
+        public BenchState(Map<String, Object> initData) {
+            super(initData);
+        }
+    }
+
+    // FlowBuilder names nodes after their class, so every position needs its own type
+    static class PassThrough implements AgentNode<BenchState> {
+        @Override
+        public BenchState execute(BenchState state) {
+            return state;
+        }
+    }
+
+    static final class StepA extends PassThrough {}
+    static final class StepB extends PassThrough {}
+    static final class StepC extends PassThrough {}
+    static final class StepD extends PassThrough {}
+    static final class StepE extends PassThrough {}
+    static final class StepF extends PassThrough {}
+
+    static final class AlwaysLeft implements AgentRouter<BenchState> {
+        @Override
+        public String route(BenchState state) {
+            return "left";
+        }
+    }
+
+    record StubDefinition(String id, Consumer<FlowBuilder<BenchState>> wiring)
+            implements WorkflowDefinition<BenchState> {
+        @Override public String getWorkflowId() { return id; }
+        @Override public String getVersion() { return "bench"; }
+        @Override public void define(FlowBuilder<BenchState> builder) { wiring.accept(builder); }
+        @Override public Class<BenchState> getStateType() { return BenchState.class; }
+        @Override public Function<Map<String, Object>, BenchState> stateFactory() { return BenchState::new; }
+    }
+
+    static FlowBuilder<BenchState> builder(GenericApplicationContext context) {
+        return new FlowBuilder<>(BenchState::new, context, FlowSettings.defaults(), "bench", "bench");
+    }
+
+    // Six nodes in a row
+    static void linear(FlowBuilder<BenchState> builder) {
+        builder.startWith(StepA.class).next(StepB.class).next(StepC.class)
+                .next(StepD.class).next(StepE.class).next(StepF.class);
+    }
+
+    // Entry node, router picking one of two targets
+    static void choice(FlowBuilder<BenchState> builder) {
+        builder.startWith(StepA.class)
+                .choice(AlwaysLeft.class)
+                .when("left", StepB.class)
+                .when("right", StepC.class)
+                .endRouting();
+    }
+
+    // Entry node, four branches, join node
+    static void parallel(FlowBuilder<BenchState> builder) {
+        builder.startWith(StepA.class)
+                .parallel()
+                .add(StepB.class).add(StepC.class).add(StepD.class).add(StepE.class)
+                .join(StepF.class);
+    }
+
+    static GenericApplicationContext context() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(StepA.class);
+        context.registerBean(StepB.class);
+        context.registerBean(StepC.class);
+        context.registerBean(StepD.class);
+        context.registerBean(StepE.class);
+        context.registerBean(StepF.class);
+        context.registerBean(AlwaysLeft.class);
+        context.registerBean(LINEAR, StubDefinition.class, () -> new StubDefinition(LINEAR, StubFlows::linear));
+        context.registerBean(CHOICE, StubDefinition.class, () -> new StubDefinition(CHOICE, StubFlows::choice));
+        context.registerBean(PARALLEL, StubDefinition.class, () -> new StubDefinition(PARALLEL, StubFlows::parallel));
+        context.refresh();
+        return context;
+    }
+
+    static Map<String, Object> data(int keys) {
+        Map<String, Object> data = new HashMap<>();
+        for (int i = 0; i < keys; i++) {
+            data.put("key-" + i, "value-" + i);
+        }
+        return data;
+    }
+}
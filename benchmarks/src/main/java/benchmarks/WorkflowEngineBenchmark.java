@@ -0,0 +1,83 @@
+package benchmarks;
+
+import benchmarks.StubFlows.BenchState;
+import dsl.FlowSettings;
+import engine.ExecutionEngine;
+import engine.WorkflowEngine;
+import observability.NodeMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of WorkflowEngine.run with stub nodes.
+ * Divide by the node count of the flow (linear: 6, choice: 2, parallel: 6) for per-node overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class WorkflowEngineBenchmark {
+
+    @Param({StubFlows.LINEAR, StubFlows.CHOICE, StubFlows.PARALLEL})
+    public String flow;
+
+    // caller: nodes run on the benchmark thread; virtual: one virtual thread per node
+    @Param({"caller", "virtual"})
+    public String executor;
+
+    @Param({"10", "1000"})
+    public int stateKeys;
+
+    // langgraph4j CompiledGraph vs the array-based GraphExecutor
+    @Param({"LANGGRAPH", "NATIVE"})
+    public String runtime;
+
+    private GenericApplicationContext context;
+    private ExecutorService virtualThreads;
+    private WorkflowEngine engine;
+    private Map<String, Object> input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StubFlows.context();
+        virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+        FlowSettings settings = "virtual".equals(executor)
+                ? new FlowSettings(virtualThreads, 8, NodeMetrics.noop())
+                : FlowSettings.defaults();
+
+        engine = new WorkflowEngine(settings, null, ExecutionEngine.valueOf(runtime), false, null);
+        engine.setApplicationContext(context);
+        engine.registerWorkflows();
+        input = StubFlows.data(stateKeys);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        virtualThreads.close();
+        context.close();
+    }
+
+    @Benchmark
+    public BenchState run() {
+        return engine.run(flow, new BenchState(input));
+    }
+}
@@ -0,0 +1,56 @@
+package admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Admission layer in front of workflow execution: one {@link Bulkhead} per workflow, so a
+ * burst on one flow cannot take the slots (and the model quota) of the others.
+ * <p>
+ * Metrics per workflow: {@code agent.admission.active}, {@code agent.admission.queued}
+ * and {@code agent.admission.rejections}.
+ * </p>
+ */
+public class AdmissionController {
+    public record Limits(int maxConcurrent, int maxQueue, Duration maxWait) {}
+
+    private final Limits defaults;
+    private final Map<String, Limits> overrides;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public AdmissionController(Limits defaults, Map<String, Limits> overrides, MeterRegistry meterRegistry) {
+        this.defaults = defaults;
+        this.overrides = Map.copyOf(overrides);
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Holds a slot of the workflow until the permit is closed; throws OverloadException when saturated
+    public Bulkhead.Permit acquire(String workflowId) {
+        return bulkheads.computeIfAbsent(workflowId, this::create).acquire();
+    }
+
+    public <T> T admit(String workflowId, Supplier<T> work) {
+        try (Bulkhead.Permit ignored = acquire(workflowId)) {
+            return work.get();
+        }
+    }
+
+    private Bulkhead create(String workflowId) {
+        Limits limits = overrides.getOrDefault(workflowId, defaults);
+        Bulkhead bulkhead = new Bulkhead(workflowId, limits.maxConcurrent(), limits.maxQueue(), limits.maxWait());
+
+        Tags tags = Tags.of("workflow", workflowId);
+        Gauge.builder("agent.admission.active", bulkhead, Bulkhead::activeCount).tags(tags).register(meterRegistry);
+        Gauge.builder("agent.admission.queued", bulkhead, Bulkhead::queueDepth).tags(tags).register(meterRegistry);
+        FunctionCounter.builder("agent.admission.rejections", bulkhead, Bulkhead::rejectedCount).tags(tags).register(meterRegistry);
+        return bulkhead;
+    }
+}
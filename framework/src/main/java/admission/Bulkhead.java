@@ -0,0 +1,110 @@
+package admission;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit with a bounded wait queue.
+ * <p>
+ * Up to {@code maxConcurrent} holders run at once and up to {@code maxQueue} callers wait for a
+ * slot, each for at most {@code maxWait}. Anyone beyond that is rejected immediately, so excess
+ * load costs a fast 429 instead of a thread parked until the client has long given up.
+ * </p>
+ */
+public class Bulkhead {
+    // Weight of the newest sample in the average hold time
+    private static final double SMOOTHING = 0.2;
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong averageHoldNanos = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueue, Duration maxWait) {
+        if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be >= 1");
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public Permit acquire() {
+        try {
+            // Timed even with no wait: the untimed tryAcquire takes a free permit ahead of the
+            // callers already queued, which would make the fair semaphore unfair under load
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return new Permit(System.nanoTime());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("interrupted while waiting for " + name);
+        }
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            throw reject("queue of " + name + " is full");
+        }
+        try {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw reject("no slot for " + name + " within " + Duration.ofNanos(maxWaitNanos));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("interrupted while waiting for " + name);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        return new Permit(System.nanoTime());
+    }
+
+    public int activeCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int queueDepth() {
+        return waiting.get();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    // Time until the queue ahead of a new caller has drained, judged by recent hold times
+    private Duration retryAfter() {
+        long queued = (long) waiting.get() + 1;
+        long nanos = averageHoldNanos.get() * Math.ceilDiv(queued, maxConcurrent);
+        return Duration.ofSeconds(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos)));
+    }
+
+    private OverloadException reject(String reason) {
+        rejected.increment();
+        return new OverloadException(name, retryAfter(), "Overloaded: " + reason);
+    }
+
+    /** A held slot; closing it frees the slot. */
+    public final class Permit implements AutoCloseable {
+        private final long acquiredAt;
+        private boolean released;
+
+        private Permit(long acquiredAt) {
+            this.acquiredAt = acquiredAt;
+        }
+
+        @Override
+        public void close() {
+            if (released) return;
+            released = true;
+            long held = System.nanoTime() - acquiredAt;
+            averageHoldNanos.updateAndGet(avg -> (long) (avg + SMOOTHING * (held - avg)));
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package admission;
+
+import java.time.Duration;
+
+/**
+ * Thrown instead of queueing work the system cannot take on in time.
+ * Web layers map it to HTTP 429 with {@link #getRetryAfter()} as the Retry-After header.
+ */
+public class OverloadException extends RuntimeException {
+    private final String resource;
+    private final Duration retryAfter;
+
+    public OverloadException(String resource, Duration retryAfter, String message) {
+        super(message);
+        this.resource = resource;
+        this.retryAfter = retryAfter;
+    }
+
+    // What was saturated: a workflow id, or "llm" for the model rate limit
+    public String getResource() { return resource; }
+
+    public Duration getRetryAfter() { return retryAfter; }
+}
@@ -0,0 +1,66 @@
+package admission;
+
+import java.time.Duration;
+
+/**
+ * Token bucket refilled continuously at {@code perMinute / 60s}, holding at most one minute's worth.
+ * <p>
+ * Callers reserve permits up front and may be told to wait for them. Usage that is only known
+ * afterwards (such as response tokens) is {@linkplain #charge(long) charged} later and may push
+ * the balance negative, which delays the callers that follow.
+ * </p>
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final double permitsPerNano;
+    private double available;
+    private long lastRefill;
+
+    public TokenBucket(long perMinute) {
+        if (perMinute < 1) throw new IllegalArgumentException("perMinute must be >= 1");
+        this.capacity = perMinute;
+        this.permitsPerNano = perMinute / (double) Duration.ofMinutes(1).toNanos();
+        this.available = perMinute;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes {@code permits} if they are available within {@code maxWait}.
+     *
+     * @return how long the caller must wait before using them (zero when available now),
+     *         or {@code null} if that would exceed {@code maxWait}; nothing is taken then
+     */
+    public synchronized Duration reserve(long permits, Duration maxWait) {
+        refill();
+        double missing = Math.min(permits, capacity) - available;
+        long waitNanos = missing <= 0 ? 0 : (long) Math.ceil(missing / permitsPerNano);
+        if (waitNanos > maxWait.toNanos()) {
+            return null;
+        }
+        available -= permits;
+        return Duration.ofNanos(waitNanos);
+    }
+
+    // Time until a reservation of this size would succeed without waiting
+    public synchronized Duration timeUntil(long permits) {
+        refill();
+        double missing = Math.min(permits, capacity) - available;
+        return missing <= 0 ? Duration.ZERO : Duration.ofNanos((long) Math.ceil(missing / permitsPerNano));
+    }
+
+    public synchronized void charge(long permits) {
+        refill();
+        available -= permits;
+    }
+
+    public synchronized double available() {
+        refill();
+        return available;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,23 @@
+package aot;
+
+import node.Memoized;
+import node.Reads;
+import node.Writes;
+import observability.RunTrace;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+// Reflection the framework itself needs in a native image, independent of the application's beans
+class FrameworkRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Node annotations are looked up while graphs are wired
+        hints.reflection().registerType(Reads.class);
+        hints.reflection().registerType(Writes.class);
+        hints.reflection().registerType(Memoized.class);
+        // Trace spans are returned as JSON by applications
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), RunTrace.Span.class);
+    }
+}
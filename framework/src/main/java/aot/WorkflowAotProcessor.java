@@ -0,0 +1,101 @@
+package aot;
+
+import dsl.FlowRecorder;
+import dsl.WorkflowDefinition;
+import dsl.WorkflowTopology;
+import org.springframework.aot.generate.GeneratedMethod;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.ReflectionHints;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.javapoet.CodeBlock;
+import org.springframework.util.ClassUtils;
+
+import javax.lang.model.element.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Build-time pass over the workflow beans of an application, for native images and AOT-trained JVMs.
+ * <p>
+ * Each {@link WorkflowDefinition} bean is created and its {@code define} run against a
+ * {@link FlowRecorder}, which compiles the graph without creating any node bean. A definition
+ * that names a class without a bean, or builds a graph that does not compile, fails the build
+ * instead of the startup. Exactly the node and router classes the graphs use are registered, so
+ * their {@code @Reads}, {@code @Writes} and {@code @Memoized} annotations can be read; the state
+ * type only when the definition keeps the reflective default {@link WorkflowDefinition#stateFactory()}.
+ * </p>
+ * <p>
+ * The recorded {@link WorkflowTopology} of every workflow is emitted as code that registers it as
+ * a bean. Graphs are still wired at startup, because they need the live node beans, and the
+ * engine checks each one against its recorded topology.
+ * </p>
+ */
+class WorkflowAotProcessor implements BeanFactoryInitializationAotProcessor {
+
+    @Override
+    public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+        Set<Class<?>> components = new LinkedHashSet<>();
+        Set<Class<?>> stateTypes = new LinkedHashSet<>();
+        List<WorkflowTopology> topologies = new ArrayList<>();
+
+        for (String name : beanFactory.getBeanNamesForType(WorkflowDefinition.class, true, false)) {
+            WorkflowDefinition<?> definition = beanFactory.getBean(name, WorkflowDefinition.class);
+            FlowRecorder.Recording recording;
+            try {
+                recording = FlowRecorder.record(definition, beanFactory);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Workflow " + definition.getWorkflowId() + " "
+                        + definition.getVersion() + " (bean '" + name + "') does not build: " + e.getMessage(), e);
+            }
+            components.addAll(recording.components());
+            topologies.add(recording.topology());
+
+            Class<?> definitionType = ClassUtils.getUserClass(definition);
+            if (usesReflectiveStateFactory(definitionType)) {
+                Class<?> stateType = ResolvableType.forClass(definitionType).as(WorkflowDefinition.class).resolveGeneric(0);
+                if (stateType != null) stateTypes.add(stateType);
+            }
+        }
+
+        if (topologies.isEmpty()) return null;
+        return (generationContext, code) -> {
+            ReflectionHints reflection = generationContext.getRuntimeHints().reflection();
+            components.forEach(reflection::registerType);
+            stateTypes.forEach(type -> reflection.registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+
+            GeneratedMethod method = code.getMethods().add("registerWorkflowTopologies", builder -> builder
+                    .addJavadoc("Registers the workflow graphs recorded at build time.")
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .addParameter(DefaultListableBeanFactory.class, "beanFactory")
+                    .addCode(registrations(topologies)));
+            code.addInitializer(method.toMethodReference());
+        };
+    }
+
+    private static CodeBlock registrations(List<WorkflowTopology> topologies) {
+        CodeBlock.Builder code = CodeBlock.builder();
+        for (WorkflowTopology topology : topologies) {
+            CodeBlock edges = topology.edges().stream()
+                    .map(edge -> CodeBlock.of("$S", edge))
+                    .collect(CodeBlock.joining(", "));
+            code.addStatement("beanFactory.registerSingleton($S, new $T($S, $S, $T.of($L)))",
+                    "workflowTopology#" + topology.workflowId() + "@" + topology.version(), WorkflowTopology.class,
+                    topology.workflowId(), topology.version(), List.class, edges);
+        }
+        return code.build();
+    }
+
+    private static boolean usesReflectiveStateFactory(Class<?> definitionType) {
+        try {
+            return definitionType.getMethod("stateFactory").getDeclaringClass() == WorkflowDefinition.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+}
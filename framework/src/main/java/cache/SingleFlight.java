@@ -0,0 +1,67 @@
+package cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one.
+ * <p>
+ * The first caller for a key runs the call; everyone arriving while it is in flight gets the
+ * same result. The key is released as soon as the call completes, so unlike a cache nothing
+ * outlives the call itself.
+ * </p>
+ * <p>
+ * In front of a cache, a caller that missed the cache just before the previous call stored its
+ * result and released the key would otherwise run the call again. Passing the cache lookup as
+ * {@code cached} closes that gap, provided the call stores its result before it completes: the
+ * lookup is repeated once the caller holds the key, when any earlier result is already stored.
+ * </p>
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        return execute(key, () -> null, call);
+    }
+
+    public CompletableFuture<V> execute(K key, Supplier<V> cached, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> leader = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            coalesced.increment();
+            // A copy, so one caller cancelling cannot cancel the shared call for the others
+            return existing.copy();
+        }
+
+        try {
+            V stored = cached.get();
+            if (stored != null) {
+                inFlight.remove(key, leader);
+                leader.complete(stored);
+                return leader.copy();
+            }
+            call.get().whenComplete((value, error) -> {
+                // Release before completing: late arrivals then start a fresh call (or hit a cache)
+                inFlight.remove(key, leader);
+                if (error != null) leader.completeExceptionally(error);
+                else leader.complete(value);
+            });
+        } catch (Throwable t) {
+            inFlight.remove(key, leader);
+            leader.completeExceptionally(t);
+        }
+        return leader.copy();
+    }
+
+    // Number of calls that attached to an in-flight call instead of running their own
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
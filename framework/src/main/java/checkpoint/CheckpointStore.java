@@ -0,0 +1,18 @@
+package checkpoint;
+
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
+
+import java.util.Optional;
+
+/**
+ * Durable checkpoint saver that also remembers which workflow a run belongs to,
+ * so a run can be resumed knowing nothing but its id.
+ */
+public interface CheckpointStore extends BaseCheckpointSaver {
+
+    record RunInfo(String runId, String workflowId, String workflowVersion) {}
+
+    void recordRun(String runId, String workflowId, String workflowVersion);
+
+    Optional<RunInfo> findRun(String runId);
+}
@@ -0,0 +1,385 @@
+package checkpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import state.PersistentStateMap;
+import state.StateDelta;
+import state.StateSerializer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * File-backed {@link CheckpointStore} built on a memory-mapped {@link SegmentLog}.
+ * <p>
+ * Every step appends one record to the log and updates an in-memory index, so reads never
+ * touch the disk. A step is written as its change from the run's previous checkpoint, so the
+ * bytes per step follow the size of the change, not of the state. On startup the log is
+ * replayed to rebuild the index. A background task periodically compacts sealed segments down
+ * to the latest checkpoint of each live run, written in full; runs cleared after completing
+ * successfully disappear at that point. Runs that failed are kept for resuming until they have
+ * had no new checkpoint for {@code retention}, then cleared the same way.
+ * </p>
+ */
+public class MappedCheckpointStore implements CheckpointStore, Closeable {
+    private static final byte RUN = 1;
+    private static final byte CHECKPOINT = 2;
+    private static final byte CLEAR = 3;
+    private static final byte CHECKPOINT_DELTA = 4;
+
+    private final SegmentLog log;
+    private final StateSerializer serializer;
+    // Logs written before records went through the serializer were plain JSON
+    private final ObjectMapper legacyMapper = new ObjectMapper();
+    private final Map<String, RunLog> runs = new ConcurrentHashMap<>();
+    // Keeps log order and index order identical, which is what compaction relies on
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final int compactAfterSegments;
+    private final Duration retention; // null keeps failed runs until they are cleared
+    private final ScheduledExecutorService compactor;
+
+    private static final class RunLog {
+        final String runId;
+        RunInfo info;
+        final LinkedList<Checkpoint> checkpoints = new LinkedList<>(); // newest first
+        volatile long updatedAt; // epoch millis of the run's last record
+
+        RunLog(String runId) {
+            this.runId = runId;
+        }
+    }
+
+    private record LiveRun(String runId, RunInfo info, Checkpoint latest, long updatedAt) {}
+
+    public MappedCheckpointStore(Path directory, int segmentSize, Duration compactInterval, int compactAfterSegments,
+                                 StateSerializer serializer) {
+        this(directory, segmentSize, compactInterval, compactAfterSegments, serializer, null);
+    }
+
+    // retention must be longer than any single step takes, or a slow run loses its checkpoints
+    public MappedCheckpointStore(Path directory, int segmentSize, Duration compactInterval, int compactAfterSegments,
+                                 StateSerializer serializer, Duration retention) {
+        this.log = new SegmentLog(directory, segmentSize);
+        this.serializer = serializer;
+        this.compactAfterSegments = compactAfterSegments;
+        this.retention = retention;
+        try {
+            log.open(this::replay);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open checkpoint store at " + directory, e);
+        }
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("checkpoint-compactor").daemon().factory());
+        long interval = compactInterval.toMillis();
+        compactor.scheduleWithFixedDelay(this::maintainQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void recordRun(String runId, String workflowId, String workflowVersion) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("run", runId);
+        record.put("workflow", workflowId);
+        record.put("version", workflowVersion);
+        long now = System.currentTimeMillis();
+        record.put("at", now);
+        byte[] payload = encode(record);
+
+        writeLock.lock();
+        try {
+            log.append(RUN, payload);
+            RunLog run = runs.computeIfAbsent(runId, RunLog::new);
+            run.info = new RunInfo(runId, workflowId, workflowVersion);
+            run.updatedAt = now;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<RunInfo> findRun(String runId) {
+        return Optional.ofNullable(runs.get(runId)).map(run -> run.info);
+    }
+
+    @Override
+    public Collection<Checkpoint> list(RunnableConfig config) {
+        RunLog run = runs.get(threadId(config));
+        if (run == null) return List.of();
+        synchronized (run) {
+            return List.copyOf(run.checkpoints);
+        }
+    }
+
+    @Override
+    public Optional<Checkpoint> get(RunnableConfig config) {
+        RunLog run = runs.get(threadId(config));
+        if (run == null) return Optional.empty();
+        synchronized (run) {
+            if (config.checkPointId().isPresent()) {
+                String id = config.checkPointId().get();
+                return run.checkpoints.stream().filter(c -> c.getId().equals(id)).findFirst();
+            }
+            return Optional.ofNullable(run.checkpoints.peekFirst());
+        }
+    }
+
+    @Override
+    public RunnableConfig put(RunnableConfig config, Checkpoint checkpoint) throws Exception {
+        String runId = threadId(config);
+        long now = System.currentTimeMillis();
+        // Serialize outside the lock; the critical section is a buffer copy and an index update
+        Checkpoint base = deltaBase(runs.get(runId), checkpoint.getId());
+        byte[] payload = encode(base == null ? toRecord(runId, checkpoint, now) : toDeltaRecord(runId, base, checkpoint, now));
+
+        writeLock.lock();
+        try {
+            RunLog run = runs.computeIfAbsent(runId, RunLog::new);
+            if (base != deltaBase(run, checkpoint.getId())) {
+                // The run moved on while we were encoding; a full record is always valid
+                base = null;
+                payload = encode(toRecord(runId, checkpoint, now));
+            }
+            log.append(base == null ? CHECKPOINT : CHECKPOINT_DELTA, payload);
+            apply(run, checkpoint);
+            run.updatedAt = now;
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (config.checkPointId().isPresent()) {
+            return config;
+        }
+        return RunnableConfig.builder(config).checkPointId(checkpoint.getId()).build();
+    }
+
+    @Override
+    public boolean clear(RunnableConfig config) {
+        return clear(threadId(config));
+    }
+
+    private boolean clear(String runId) {
+        byte[] payload = encode(Map.of("run", runId));
+
+        writeLock.lock();
+        try {
+            log.append(CLEAR, payload);
+            return runs.remove(runId) != null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Clears the runs nothing was written for within the retention: failed runs nobody resumed
+    public int expire() {
+        if (retention == null) return 0;
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        int expired = 0;
+        for (RunLog run : runs.values()) {
+            if (run.updatedAt < cutoff && clear(run.runId)) expired++;
+        }
+        return expired;
+    }
+
+    // Rewrites sealed segments as one segment holding only what a resume could still need
+    public void compact() throws IOException {
+        long upTo;
+        List<LiveRun> live;
+        writeLock.lock();
+        try {
+            if (log.sealedCount() < compactAfterSegments) return;
+            upTo = log.sealForCompaction();
+            live = runs.values().stream().map(MappedCheckpointStore::snapshot).toList();
+        } finally {
+            writeLock.unlock();
+        }
+
+        log.compact(upTo, writer -> {
+            for (LiveRun run : live) {
+                if (run.info() != null) {
+                    Map<String, Object> header = new HashMap<>();
+                    header.put("run", run.runId());
+                    header.put("workflow", run.info().workflowId());
+                    header.put("version", run.info().workflowVersion());
+                    header.put("at", run.updatedAt());
+                    writer.write(RUN, encode(header));
+                }
+                if (run.latest() != null) {
+                    writer.write(CHECKPOINT, encode(toRecord(run.runId(), run.latest(), run.updatedAt())));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        log.close();
+    }
+
+    private void maintainQuietly() {
+        try {
+            expire();
+            compact();
+        } catch (Exception e) {
+            // Compaction is an optimisation; the uncompacted log stays valid and is retried next time
+        }
+    }
+
+    private static LiveRun snapshot(RunLog run) {
+        synchronized (run) {
+            return new LiveRun(run.runId, run.info, run.checkpoints.peekFirst(), run.updatedAt);
+        }
+    }
+
+    // Same id means LangGraph updated an existing checkpoint in place; anything else is a new step
+    private static void apply(RunLog run, Checkpoint checkpoint) {
+        synchronized (run) {
+            for (int i = 0; i < run.checkpoints.size(); i++) {
+                if (run.checkpoints.get(i).getId().equals(checkpoint.getId())) {
+                    Checkpoint older = i + 1 < run.checkpoints.size() ? run.checkpoints.get(i + 1) : null;
+                    run.checkpoints.set(i, sharing(older, checkpoint));
+                    return;
+                }
+            }
+            run.checkpoints.push(sharing(run.checkpoints.peekFirst(), checkpoint));
+        }
+    }
+
+    // Retained states share structure with the previous step, so a run's history costs the size
+    // of each step's change instead of a full copy of the state per step
+    private static Checkpoint sharing(Checkpoint previous, Checkpoint checkpoint) {
+        PersistentStateMap state = previous == null
+                ? PersistentStateMap.of(checkpoint.getState())
+                : PersistentStateMap.of(previous.getState()).with(
+                        StateDelta.between(previous.getState(), checkpoint.getState()));
+        return Checkpoint.builder()
+                .id(checkpoint.getId())
+                .nodeId(checkpoint.getNodeId())
+                .nextNodeId(checkpoint.getNextNodeId())
+                .state(state)
+                .build();
+    }
+
+    /**
+     * What a new checkpoint may be written relative to: the run's newest checkpoint, unless the
+     * new one replaces it in place. Replay sees the same index at the same point, so it
+     * resolves the same base; compaction keeps exactly these newest checkpoints.
+     */
+    private static Checkpoint deltaBase(RunLog run, String checkpointId) {
+        if (run == null) return null;
+        synchronized (run) {
+            Checkpoint head = run.checkpoints.peekFirst();
+            return head == null || head.getId().equals(checkpointId) ? null : head;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replay(byte type, ByteBuffer payload) {
+        Map<String, Object> record = decode(payload);
+        String runId = (String) record.get("run");
+        // Records written before timestamps were added count as written now
+        long at = record.get("at") instanceof Number n ? n.longValue() : System.currentTimeMillis();
+        switch (type) {
+            case RUN -> {
+                RunLog run = runs.computeIfAbsent(runId, RunLog::new);
+                run.info = new RunInfo(runId, (String) record.get("workflow"), (String) record.get("version"));
+                run.updatedAt = at;
+            }
+            case CHECKPOINT -> {
+                RunLog run = runs.computeIfAbsent(runId, RunLog::new);
+                apply(run, Checkpoint.builder()
+                        .id((String) record.get("id"))
+                        .nodeId((String) record.get("node"))
+                        .nextNodeId((String) record.get("next"))
+                        .state((Map<String, Object>) record.get("state"))
+                        .build());
+                run.updatedAt = at;
+            }
+            case CHECKPOINT_DELTA -> {
+                RunLog run = runs.get(runId);
+                String id = (String) record.get("id");
+                Checkpoint base = deltaBase(run, id);
+                if (base == null || !base.getId().equals(record.get("base"))) {
+                    throw new IllegalStateException("Checkpoint " + id + " of run " + runId + " has no base " + record.get("base"));
+                }
+                StateDelta delta = new StateDelta(
+                        (Map<String, Object>) record.get("updated"),
+                        new HashSet<>((List<String>) record.get("removed")));
+                apply(run, Checkpoint.builder()
+                        .id(id)
+                        .nodeId((String) record.get("node"))
+                        .nextNodeId((String) record.get("next"))
+                        .state(PersistentStateMap.of(base.getState()).with(delta))
+                        .build());
+                run.updatedAt = at;
+            }
+            case CLEAR -> runs.remove(runId);
+            default -> throw new IllegalStateException("Unknown checkpoint record type " + type);
+        }
+    }
+
+    private static Map<String, Object> toRecord(String runId, Checkpoint checkpoint, long at) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("run", runId);
+        record.put("at", at);
+        record.put("id", checkpoint.getId());
+        record.put("node", checkpoint.getNodeId());
+        record.put("next", checkpoint.getNextNodeId());
+        record.put("state", checkpoint.getState());
+        return record;
+    }
+
+    private static Map<String, Object> toDeltaRecord(String runId, Checkpoint base, Checkpoint checkpoint, long at) {
+        // Not between(): the reference check misses lists and maps changed in place
+        StateDelta delta = StateDelta.durable(base.getState(), checkpoint.getState());
+        Map<String, Object> record = new HashMap<>();
+        record.put("run", runId);
+        record.put("at", at);
+        record.put("id", checkpoint.getId());
+        record.put("node", checkpoint.getNodeId());
+        record.put("next", checkpoint.getNextNodeId());
+        record.put("base", base.getId());
+        record.put("updated", delta.updated());
+        record.put("removed", List.copyOf(delta.removed()));
+        return record;
+    }
+
+    private byte[] encode(Map<String, Object> record) {
+        return serializer.write(record);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> decode(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        if (bytes.length == 0 || bytes[0] != '{') {
+            return serializer.read(bytes);
+        }
+        try {
+            return legacyMapper.readValue(bytes, Map.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt checkpoint record", e);
+        }
+    }
+
+    private static String threadId(RunnableConfig config) {
+        return config.threadId().orElse(THREAD_ID_DEFAULT);
+    }
+}
@@ -0,0 +1,222 @@
+package checkpoint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of framed records spread over fixed-size memory-mapped segment files.
+ * <p>
+ * Frame layout: {@code [int length][byte type][payload]}, where length covers type + payload.
+ * The length is written last, so a process crash mid-append leaves a zero length and replay
+ * stops cleanly at the last complete record. Appends touch only the mapped buffer (no syscall);
+ * segments are forced to disk when they are sealed or the log is closed.
+ * </p>
+ * <p>
+ * Compaction writes the live records into {@code compact-N.tmp}, terminated by a commit frame,
+ * then removes segments {@code <= N} and renames the file to {@code segment-N.log}.
+ * A committed temp file found at startup means that sequence was interrupted and is finished then.
+ * </p>
+ */
+final class SegmentLog implements Closeable {
+    static final byte COMMIT = 0x7F;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACT_PREFIX = "compact-";
+    private static final String COMPACT_SUFFIX = ".tmp";
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(byte type, ByteBuffer payload);
+    }
+
+    @FunctionalInterface
+    interface RecordWriter {
+        void write(byte type, byte[] payload);
+    }
+
+    private record Segment(long number, Path path, FileChannel channel, MappedByteBuffer buffer) {}
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Path> sealed = new ArrayList<>();
+    private Segment active; // guarded by this
+
+    SegmentLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    // Finishes any interrupted compaction, replays all segments in order, then opens a fresh segment
+    synchronized void open(RecordConsumer consumer) throws IOException {
+        Files.createDirectories(directory);
+        recoverCompaction();
+
+        List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (Path segment : segments) {
+            replay(segment, consumer);
+        }
+        sealed.addAll(segments);
+        long next = segments.isEmpty() ? 0 : number(segments.getLast(), SEGMENT_PREFIX, SEGMENT_SUFFIX) + 1;
+        active = create(next, segmentSize);
+    }
+
+    synchronized void append(byte type, byte[] payload) {
+        int frame = Integer.BYTES + 1 + payload.length;
+        if (active.buffer().remaining() < frame) {
+            roll(frame);
+        }
+        MappedByteBuffer buffer = active.buffer();
+        int start = buffer.position();
+        buffer.position(start + Integer.BYTES);
+        buffer.put(type);
+        buffer.put(payload);
+        // Publish: a non-zero length marks the frame as complete
+        buffer.putInt(start, 1 + payload.length);
+    }
+
+    synchronized int sealedCount() {
+        return sealed.size();
+    }
+
+    /**
+     * Seals the active segment and returns the number of the newest sealed segment;
+     * everything up to and including it is what the next {@link #compact} call replaces.
+     */
+    synchronized long sealForCompaction() {
+        roll(0);
+        return number(sealed.getLast(), SEGMENT_PREFIX, SEGMENT_SUFFIX);
+    }
+
+    // Replaces segments <= upTo with the records produced by the snapshot writer
+    void compact(long upTo, Consumer<RecordWriter> snapshot) throws IOException {
+        Path temp = directory.resolve(COMPACT_PREFIX + upTo + COMPACT_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            snapshot.accept((type, payload) -> writeFrame(channel, type, payload));
+            writeFrame(channel, COMMIT, new byte[0]);
+            channel.force(true);
+        }
+        finishCompaction(temp, upTo);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            active.buffer().force();
+            active.channel().close();
+            active = null;
+        }
+    }
+
+    private void roll(int minimumFrame) {
+        try {
+            active.buffer().force();
+            active.channel().close();
+            sealed.add(active.path());
+            active = create(active.number() + 1, Math.max(segmentSize, minimumFrame + Integer.BYTES));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not roll checkpoint segment in " + directory, e);
+        }
+    }
+
+    private Segment create(long number, int size) throws IOException {
+        Path path = directory.resolve(SEGMENT_PREFIX + String.format("%012d", number) + SEGMENT_SUFFIX);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return new Segment(number, path, channel, buffer);
+    }
+
+    private void recoverCompaction() throws IOException {
+        for (Path temp : list(COMPACT_PREFIX, COMPACT_SUFFIX)) {
+            if (isCommitted(temp)) {
+                finishCompaction(temp, number(temp, COMPACT_PREFIX, COMPACT_SUFFIX));
+            } else {
+                Files.delete(temp);
+            }
+        }
+    }
+
+    private void finishCompaction(Path temp, long upTo) throws IOException {
+        List<Path> replaced;
+        synchronized (this) {
+            replaced = sealed.stream().filter(p -> number(p, SEGMENT_PREFIX, SEGMENT_SUFFIX) <= upTo).toList();
+            sealed.removeAll(replaced);
+        }
+        for (Path segment : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (number(segment, SEGMENT_PREFIX, SEGMENT_SUFFIX) < upTo) Files.deleteIfExists(segment);
+        }
+        Path target = directory.resolve(SEGMENT_PREFIX + String.format("%012d", upTo) + SEGMENT_SUFFIX);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            sealed.addFirst(target);
+        }
+    }
+
+    private static void writeFrame(FileChannel channel, byte type, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + 1 + payload.length);
+        frame.putInt(1 + payload.length).put(type).put(payload).flip();
+        try {
+            while (frame.hasRemaining()) channel.write(frame);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void replay(Path segment, RecordConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() > Integer.BYTES) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) break;
+                byte type = buffer.get();
+                ByteBuffer payload = buffer.slice(buffer.position(), length - 1);
+                buffer.position(buffer.position() + length - 1);
+                if (type != COMMIT) consumer.accept(type, payload);
+            }
+        }
+    }
+
+    private static boolean isCommitted(Path temp) throws IOException {
+        boolean committed = false;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() > Integer.BYTES) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) break;
+                committed = buffer.get() == COMMIT;
+                buffer.position(buffer.position() + length - 1);
+            }
+        }
+        return committed;
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(suffix);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long number(Path path, String prefix, String suffix) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+}
@@ -1,21 +1,129 @@
 package config;
 
+import admission.AdmissionController;
+import checkpoint.CheckpointStore;
+import checkpoint.MappedCheckpointStore;
+import dsl.FlowSettings;
+import engine.RunLimits;
 import engine.WorkflowEngine;
-import observability.NodeObservabilityAspect;
+import job.FileJobStore;
+import job.JobScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import observability.NodeMetrics;
+import observability.TraceRecorder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import state.BinaryStateSerializer;
+import state.JacksonStateSerializer;
+import state.StateSerializer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 @Configuration
-@EnableAspectJAutoProxy
+@EnableConfigurationProperties(AgentFlowProperties.class)
 public class AgentFlowConfiguration {
+    public static final String NODE_EXECUTOR = "agentNodeExecutor";
+
+    @Bean
+    public WorkflowEngine workflowEngine(FlowSettings flowSettings,
+                                         ObjectProvider<CheckpointStore> checkpointStore,
+                                         ObjectProvider<AdmissionController> admissionController,
+                                         AgentFlowProperties properties) {
+        AgentFlowProperties.Execution execution = properties.getExecution();
+        return new WorkflowEngine(flowSettings, checkpointStore.getIfAvailable(),
+                execution.getEngine(), execution.isLazyCompile(), admissionController.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "agent.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public AdmissionController admissionController(AgentFlowProperties properties,
+                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        AgentFlowProperties.Admission admission = properties.getAdmission();
+        Map<String, AdmissionController.Limits> overrides = new HashMap<>();
+        admission.getWorkflows().forEach((workflowId, limits) -> overrides.put(workflowId, limits(limits)));
+        return new AdmissionController(limits(admission.getDefaults()), overrides,
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "agent.checkpoint", name = "enabled", havingValue = "true")
+    public MappedCheckpointStore checkpointStore(AgentFlowProperties properties, StateSerializer stateSerializer) {
+        AgentFlowProperties.Checkpoint checkpoint = properties.getCheckpoint();
+        return new MappedCheckpointStore(
+                checkpoint.getDirectory(),
+                Math.toIntExact(checkpoint.getSegmentSize().toBytes()),
+                checkpoint.getCompactInterval(),
+                checkpoint.getCompactAfterSegments(),
+                stateSerializer,
+                checkpoint.getFailedRunRetention());
+    }
+
+    // Encoding of persisted state: checkpoint records and job files
+    @Bean
+    public StateSerializer stateSerializer(AgentFlowProperties properties) {
+        AgentFlowProperties.Serialization serialization = properties.getSerialization();
+        return switch (serialization.getFormat()) {
+            case BINARY -> new BinaryStateSerializer(Math.toIntExact(serialization.getCompressThreshold().toBytes()));
+            case JSON -> new JacksonStateSerializer();
+        };
+    }
+
+    // Created with the engine it feeds; the engine's submit/job calls go through it
+    @Bean
+    @ConditionalOnProperty(prefix = "agent.jobs", name = "enabled", havingValue = "true")
+    public JobScheduler jobScheduler(WorkflowEngine workflowEngine, AgentFlowProperties properties,
+                                     StateSerializer stateSerializer) {
+        AgentFlowProperties.Jobs jobs = properties.getJobs();
+        JobScheduler scheduler = new JobScheduler(workflowEngine, new FileJobStore(jobs.getDirectory(), stateSerializer),
+                jobs.getWorkers(), jobs.getRetention());
+        workflowEngine.setJobScheduler(scheduler);
+        return scheduler;
+    }
+
+    @Bean
+    public FlowSettings flowSettings(@Qualifier(NODE_EXECUTOR) Executor agentNodeExecutor,
+                                     AgentFlowProperties properties,
+                                     NodeMetrics nodeMetrics,
+                                     TraceRecorder traceRecorder) {
+        AgentFlowProperties.Execution execution = properties.getExecution();
+        RunLimits limits = new RunLimits(execution.getTimeout(), execution.getNodeTimeout(), properties.getMaxIterations());
+        return new FlowSettings(agentNodeExecutor, properties.getParallel().getMaxConcurrency(), nodeMetrics, limits,
+                traceRecorder);
+    }
+
     @Bean
-    public WorkflowEngine workflowEngine() {
-        return new WorkflowEngine();
+    public TraceRecorder traceRecorder(AgentFlowProperties properties) {
+        AgentFlowProperties.Tracing tracing = properties.getTracing();
+        if (!tracing.isEnabled()) {
+            return TraceRecorder.disabled();
+        }
+        return new TraceRecorder(tracing.getSampleRate(), tracing.getMaxSpansPerRun(), tracing.getRetainSlowest(),
+                tracing.getExportDirectory());
     }
 
     @Bean
-    public NodeObservabilityAspect nodeObservabilityAspect() {
-        return new NodeObservabilityAspect();
+    public NodeMetrics nodeMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new NodeMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    // Executor used for synchronous AgentNodes. Closed by Spring on shutdown (inferred destroy method).
+    @Bean(name = NODE_EXECUTOR)
+    public Executor agentNodeExecutor(AgentFlowProperties properties) {
+        return switch (properties.getExecution().getMode()) {
+            case VIRTUAL -> Executors.newVirtualThreadPerTaskExecutor();
+            case CALLER -> Runnable::run;
+        };
+    }
+
+    private static AdmissionController.Limits limits(AgentFlowProperties.Limits limits) {
+        return new AdmissionController.Limits(limits.getMaxConcurrent(), limits.getMaxQueue(), limits.getMaxWait());
     }
 }
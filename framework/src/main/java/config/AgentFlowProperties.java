@@ -0,0 +1,316 @@
+package config;
+
+import engine.ExecutionEngine;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Engine-level settings bound from the {@code agent.*} namespace of application.yaml.
+ */
+@ConfigurationProperties(prefix = "agent")
+public class AgentFlowProperties {
+
+    private final Execution execution = new Execution();
+    private final Parallel parallel = new Parallel();
+    private final Llm llm = new Llm();
+    private final Checkpoint checkpoint = new Checkpoint();
+    private final Jobs jobs = new Jobs();
+    private final Admission admission = new Admission();
+    private final Serialization serialization = new Serialization();
+    private final Memory memory = new Memory();
+    private final Tracing tracing = new Tracing();
+    // Node invocations allowed per run (every pass of a loop counts); 0 disables the cap
+    private int maxIterations = 25;
+
+    public Execution getExecution() { return execution; }
+    public Parallel getParallel() { return parallel; }
+    public Llm getLlm() { return llm; }
+    public Checkpoint getCheckpoint() { return checkpoint; }
+    public Jobs getJobs() { return jobs; }
+    public Admission getAdmission() { return admission; }
+    public Serialization getSerialization() { return serialization; }
+    public Memory getMemory() { return memory; }
+    public Tracing getTracing() { return tracing; }
+
+    public int getMaxIterations() { return maxIterations; }
+    public void setMaxIterations(int maxIterations) { this.maxIterations = maxIterations; }
+
+    public enum ExecutionMode {
+        // Run synchronous AgentNodes on the thread that drives the graph (legacy behaviour)
+        CALLER,
+        // Run each synchronous AgentNode on its own virtual thread
+        VIRTUAL
+    }
+
+    public enum SerializationFormat {
+        // Compact tagged encoding with interned keys
+        BINARY,
+        // Plain JSON; larger, but readable with standard tools
+        JSON
+    }
+
+    public static class Execution {
+        private ExecutionMode mode = ExecutionMode.VIRTUAL;
+        private ExecutionEngine engine = ExecutionEngine.AUTO;
+        // Compile each workflow on its first run instead of at startup
+        private boolean lazyCompile = false;
+        // Default wall-clock budget of a run and of a single node; unset means unbounded
+        private Duration timeout;
+        private Duration nodeTimeout;
+
+        public ExecutionMode getMode() { return mode; }
+        public void setMode(ExecutionMode mode) { this.mode = mode; }
+
+        public ExecutionEngine getEngine() { return engine; }
+        public void setEngine(ExecutionEngine engine) { this.engine = engine; }
+
+        public boolean isLazyCompile() { return lazyCompile; }
+        public void setLazyCompile(boolean lazyCompile) { this.lazyCompile = lazyCompile; }
+
+        public Duration getTimeout() { return timeout; }
+        public void setTimeout(Duration timeout) { this.timeout = timeout; }
+
+        public Duration getNodeTimeout() { return nodeTimeout; }
+        public void setNodeTimeout(Duration nodeTimeout) { this.nodeTimeout = nodeTimeout; }
+    }
+
+    public static class Parallel {
+        // Default per-stage limit; a stage can override it with ParallelStage#maxConcurrency
+        private int maxConcurrency = 8;
+
+        public int getMaxConcurrency() { return maxConcurrency; }
+        public void setMaxConcurrency(int maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+    }
+
+    public static class Llm {
+        // Default system prompt of the application's ChatClient; part of the cache key
+        private String systemPrompt;
+        private final Cache cache = new Cache();
+        // Attach identical concurrent calls to the one already in flight
+        private boolean coalescing = true;
+        private final RateLimit rateLimit = new RateLimit();
+        private final Hedging hedging = new Hedging();
+
+        public String getSystemPrompt() { return systemPrompt; }
+        public void setSystemPrompt(String systemPrompt) { this.systemPrompt = systemPrompt; }
+
+        public Cache getCache() { return cache; }
+
+        public boolean isCoalescing() { return coalescing; }
+        public void setCoalescing(boolean coalescing) { this.coalescing = coalescing; }
+
+        public RateLimit getRateLimit() { return rateLimit; }
+
+        public Hedging getHedging() { return hedging; }
+    }
+
+    // Duplicate slow model calls; the first answer wins
+    public static class Hedging {
+        private boolean enabled = false;
+        // A call is hedged once it has taken longer than this percentile of recent calls
+        private double percentile = 0.95;
+        // Upper bound on extra calls, as a fraction of all calls
+        private double maxExtraRatio = 0.05;
+        private Duration minDelay = Duration.ofMillis(100);
+        // Calls observed before hedging starts
+        private int minSamples = 50;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getPercentile() { return percentile; }
+        public void setPercentile(double percentile) { this.percentile = percentile; }
+
+        public double getMaxExtraRatio() { return maxExtraRatio; }
+        public void setMaxExtraRatio(double maxExtraRatio) { this.maxExtraRatio = maxExtraRatio; }
+
+        public Duration getMinDelay() { return minDelay; }
+        public void setMinDelay(Duration minDelay) { this.minDelay = minDelay; }
+
+        public int getMinSamples() { return minSamples; }
+        public void setMinSamples(int minSamples) { this.minSamples = minSamples; }
+    }
+
+    // Provider quotas for model calls; 0 means unlimited
+    public static class RateLimit {
+        private long requestsPerMinute = 0;
+        private long tokensPerMinute = 0;
+        // Longest a call may wait for quota before failing with 429
+        private Duration maxWait = Duration.ofSeconds(5);
+
+        public long getRequestsPerMinute() { return requestsPerMinute; }
+        public void setRequestsPerMinute(long requestsPerMinute) { this.requestsPerMinute = requestsPerMinute; }
+
+        public long getTokensPerMinute() { return tokensPerMinute; }
+        public void setTokensPerMinute(long tokensPerMinute) { this.tokensPerMinute = tokensPerMinute; }
+
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+    }
+
+    public static class Cache {
+        private boolean enabled = true;
+        private int maxEntries = 10_000;
+        private Duration ttl = Duration.ofHours(1);
+        // Graph node names whose LLM calls must never share a response (cached or coalesced)
+        private Set<String> uncachedNodes = new HashSet<>();
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+        public Set<String> getUncachedNodes() { return uncachedNodes; }
+        public void setUncachedNodes(Set<String> uncachedNodes) { this.uncachedNodes = uncachedNodes; }
+    }
+
+    public static class Checkpoint {
+        private boolean enabled = false;
+        private Path directory = Path.of("checkpoints");
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        private Duration compactInterval = Duration.ofMinutes(5);
+        // Compact once at least this many segments are sealed
+        private int compactAfterSegments = 4;
+        // Checkpoints of failed runs stay resumable this long after their last step
+        private Duration failedRunRetention = Duration.ofDays(1);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public Path getDirectory() { return directory; }
+        public void setDirectory(Path directory) { this.directory = directory; }
+
+        public DataSize getSegmentSize() { return segmentSize; }
+        public void setSegmentSize(DataSize segmentSize) { this.segmentSize = segmentSize; }
+
+        public Duration getCompactInterval() { return compactInterval; }
+        public void setCompactInterval(Duration compactInterval) { this.compactInterval = compactInterval; }
+
+        public int getCompactAfterSegments() { return compactAfterSegments; }
+        public void setCompactAfterSegments(int compactAfterSegments) { this.compactAfterSegments = compactAfterSegments; }
+
+        public Duration getFailedRunRetention() { return failedRunRetention; }
+        public void setFailedRunRetention(Duration failedRunRetention) { this.failedRunRetention = failedRunRetention; }
+    }
+
+    public static class Admission {
+        private boolean enabled = true;
+        private final Limits defaults = new Limits();
+        // Per-workflow overrides of the default limits, keyed by workflow id
+        private Map<String, Limits> workflows = new HashMap<>();
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public Limits getDefaults() { return defaults; }
+
+        public Map<String, Limits> getWorkflows() { return workflows; }
+        public void setWorkflows(Map<String, Limits> workflows) { this.workflows = workflows; }
+    }
+
+    public static class Limits {
+        private int maxConcurrent = 32;
+        // Callers allowed to wait for a slot; anyone beyond is rejected at once
+        private int maxQueue = 64;
+        private Duration maxWait = Duration.ofSeconds(2);
+
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+        public int getMaxQueue() { return maxQueue; }
+        public void setMaxQueue(int maxQueue) { this.maxQueue = maxQueue; }
+
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+    }
+
+    // Background runs submitted through WorkflowEngine#submit
+    public static class Jobs {
+        private boolean enabled = false;
+        private Path directory = Path.of("jobs");
+        private int workers = 16;
+        // How long finished jobs stay queryable
+        private Duration retention = Duration.ofDays(7);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public Path getDirectory() { return directory; }
+        public void setDirectory(Path directory) { this.directory = directory; }
+
+        public int getWorkers() { return workers; }
+        public void setWorkers(int workers) { this.workers = workers; }
+
+        public Duration getRetention() { return retention; }
+        public void setRetention(Duration retention) { this.retention = retention; }
+    }
+
+    // Encoding of checkpoints and job files
+    public static class Serialization {
+        private SerializationFormat format = SerializationFormat.BINARY;
+        // Binary format only: strings at least this long are deflated; 0 disables compression
+        private DataSize compressThreshold = DataSize.ofKilobytes(4);
+
+        public SerializationFormat getFormat() { return format; }
+        public void setFormat(SerializationFormat format) { this.format = format; }
+
+        public DataSize getCompressThreshold() { return compressThreshold; }
+        public void setCompressThreshold(DataSize compressThreshold) { this.compressThreshold = compressThreshold; }
+    }
+
+    // Conversation context kept by ConversationMemory
+    public static class Memory {
+        // Most tokens of conversation sent with a prompt
+        private int tokenBudget = 2000;
+        // Newest turns kept verbatim when older ones are summarized
+        private int keepRecentTokens = 1000;
+        private int summaryMaxTokens = 300;
+
+        public int getTokenBudget() { return tokenBudget; }
+        public void setTokenBudget(int tokenBudget) { this.tokenBudget = tokenBudget; }
+
+        public int getKeepRecentTokens() { return keepRecentTokens; }
+        public void setKeepRecentTokens(int keepRecentTokens) { this.keepRecentTokens = keepRecentTokens; }
+
+        public int getSummaryMaxTokens() { return summaryMaxTokens; }
+        public void setSummaryMaxTokens(int summaryMaxTokens) { this.summaryMaxTokens = summaryMaxTokens; }
+    }
+
+    // Per-run timelines kept by TraceRecorder
+    public static class Tracing {
+        private boolean enabled = true;
+        // Fraction of runs recorded
+        private double sampleRate = 1.0;
+        // Ring size per run; older spans are overwritten beyond it
+        private int maxSpansPerRun = 256;
+        // Recorded runs kept in memory, slowest first
+        private int retainSlowest = 20;
+        private Path exportDirectory = Path.of("traces");
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getSampleRate() { return sampleRate; }
+        public void setSampleRate(double sampleRate) { this.sampleRate = sampleRate; }
+
+        public int getMaxSpansPerRun() { return maxSpansPerRun; }
+        public void setMaxSpansPerRun(int maxSpansPerRun) { this.maxSpansPerRun = maxSpansPerRun; }
+
+        public int getRetainSlowest() { return retainSlowest; }
+        public void setRetainSlowest(int retainSlowest) { this.retainSlowest = retainSlowest; }
+
+        public Path getExportDirectory() { return exportDirectory; }
+        public void setExportDirectory(Path exportDirectory) { this.exportDirectory = exportDirectory; }
+    }
+}
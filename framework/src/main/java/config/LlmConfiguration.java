@@ -0,0 +1,74 @@
+package config;
+
+import cache.BoundedCache;
+import cache.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import llm.LlmCacheKey;
+import llm.LlmClient;
+import llm.LlmHedger;
+import llm.LlmRateLimiter;
+import memory.ConversationMemory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * LLM access layer. Import it next to {@link AgentFlowConfiguration} in applications that
+ * expose a {@link ChatClient} bean.
+ */
+@Configuration
+public class LlmConfiguration {
+    private static final String GEMINI_OPTIONS = "spring.ai.vertex.ai.gemini.chat.options.";
+
+    @Bean
+    public LlmClient llmClient(ChatClient chatClient,
+                               AgentFlowProperties properties,
+                               Environment environment,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        AgentFlowProperties.Llm llm = properties.getLlm();
+        AgentFlowProperties.Cache cacheProps = llm.getCache();
+
+        BoundedCache<LlmCacheKey, String> cache = cacheProps.isEnabled()
+                ? new BoundedCache<>(cacheProps.getMaxEntries(), cacheProps.getTtl())
+                : null;
+        SingleFlight<LlmCacheKey, String> singleFlight = llm.isCoalescing() ? new SingleFlight<>() : null;
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        AgentFlowProperties.RateLimit rateLimit = llm.getRateLimit();
+        LlmRateLimiter rateLimiter = rateLimit.getRequestsPerMinute() > 0 || rateLimit.getTokensPerMinute() > 0
+                ? new LlmRateLimiter(rateLimit.getRequestsPerMinute(), rateLimit.getTokensPerMinute(), rateLimit.getMaxWait(), registry)
+                : null;
+        AgentFlowProperties.Hedging hedging = llm.getHedging();
+        LlmHedger hedger = hedging.isEnabled()
+                ? new LlmHedger(hedging.getPercentile(), hedging.getMaxExtraRatio(), hedging.getMinDelay(), hedging.getMinSamples(), registry)
+                : null;
+
+        return new LlmClient(
+                chatClient,
+                llm.getSystemPrompt(),
+                modelOptions(environment),
+                cache,
+                singleFlight,
+                cacheProps.getUncachedNodes(),
+                rateLimiter,
+                hedger,
+                registry);
+    }
+
+    @Bean
+    public ConversationMemory conversationMemory(LlmClient llmClient,
+                                                 AgentFlowProperties properties,
+                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        AgentFlowProperties.Memory memory = properties.getMemory();
+        return new ConversationMemory(llmClient, memory.getTokenBudget(), memory.getKeepRecentTokens(),
+                memory.getSummaryMaxTokens(), meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    // Responses produced under different model settings must not share cache entries
+    private static String modelOptions(Environment environment) {
+        return "model=" + environment.getProperty(GEMINI_OPTIONS + "model", "")
+                + ";temperature=" + environment.getProperty(GEMINI_OPTIONS + "temperature", "");
+    }
+}
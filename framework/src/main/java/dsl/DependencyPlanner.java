@@ -0,0 +1,58 @@
+package dsl;
+
+import node.Reads;
+import node.Writes;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Groups a chain of nodes that declare {@link Reads} and {@link Writes} into waves.
+ * <p>
+ * A node goes in the wave after the latest earlier node it conflicts with: one writes a key the
+ * other reads or writes. Nodes with no conflict between them share a wave and run concurrently,
+ * so every read still sees the writes it would have seen in declared order and no two nodes of
+ * a wave write the same key.
+ * </p>
+ */
+final class DependencyPlanner {
+
+    record Access(Set<String> reads, Set<String> writes) {
+
+        boolean conflictsWith(Access other) {
+            return !Collections.disjoint(writes, other.reads)
+                    || !Collections.disjoint(writes, other.writes)
+                    || !Collections.disjoint(reads, other.writes);
+        }
+    }
+
+    private DependencyPlanner() {
+    }
+
+    // The node's declared access, or null when it does not declare both sides
+    static Access accessOf(Class<?> nodeClass) {
+        Reads reads = AnnotationUtils.findAnnotation(nodeClass, Reads.class);
+        Writes writes = AnnotationUtils.findAnnotation(nodeClass, Writes.class);
+        if (reads == null || writes == null) return null;
+        return new Access(Set.copyOf(List.of(reads.value())), Set.copyOf(List.of(writes.value())));
+    }
+
+    // Indexes into accesses, one list per wave, each in declared order
+    static List<List<Integer>> waves(List<Access> accesses) {
+        int[] level = new int[accesses.size()];
+        List<List<Integer>> waves = new ArrayList<>();
+        for (int i = 0; i < accesses.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                if (accesses.get(j).conflictsWith(accesses.get(i))) {
+                    level[i] = Math.max(level[i], level[j] + 1);
+                }
+            }
+            if (level[i] == waves.size()) waves.add(new ArrayList<>());
+            waves.get(level[i]).add(i);
+        }
+        return waves;
+    }
+}
@@ -1,18 +1,46 @@
 package dsl;
 
+import engine.GraphExecutor;
+import engine.GraphRegistry;
+import engine.RunCancelledException;
+import engine.RunContext;
 import node.AgentNode;
 import node.AgentRouter;
+import node.AsyncAgentNode;
+import node.BatchAgentNode;
+import node.DeltaAgentNode;
+import node.FlowNode;
+import node.Memoized;
+import node.Reads;
+import observability.NodeMetrics;
+import observability.RunTrace;
+import org.bsc.langgraph4j.CompileConfig;
 import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.StateGraph;
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotationUtils;
 import state.AgentState;
+import state.StateDelta;
+import state.StateReducer;
 
 import java.lang.reflect.Constructor;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.bsc.langgraph4j.GraphDefinition.END;
 import static org.bsc.langgraph4j.GraphDefinition.START;
@@ -20,185 +48,499 @@ import static org.bsc.langgraph4j.GraphDefinition.START;
 /**
  * 2. FLUENT BUILDER API
  * Removes the boilerplate of manually instantiating StateGraph and wiring strings.
+ * Consecutive startWith/next nodes that declare {@link node.Reads} and {@link node.Writes}
+ * run concurrently wherever their keys do not overlap (see {@link DependencyPlanner}).
+ * A node added after endRouting() follows every routing target; nodes nothing follows end the graph.
  */
 public class FlowBuilder<S extends AgentState> {
 
     // Using the REAL StateGraph from the library
     private final StateGraph<S> graph;
+    // The same topology, for the lightweight native executor
+    private final GraphRegistry<S> registry = new GraphRegistry<>();
     private final ApplicationContext context;
+    private final FlowSettings settings;
+    // Identity of the workflow being built; tags every node metric
+    private final String workflowId;
+    private final String workflowVersion;
+    // Creates a state from a data map (used to give parallel branches private copies)
+    private final Function<Map<String, Object>, S> stateFactory;
     private String lastNodeName;
+    // Routing targets the next node attaches to, when the flow continues after a choice
+    private List<String> openEnds = List.of();
+    // Every node of the graph, and those that have an edge leaving them; the rest end the graph
+    private final Set<String> nodes = new LinkedHashSet<>();
+    private final Set<String> withOutgoing = new HashSet<>();
+    // Every edge as text, in the order it was added (see #topology())
+    private final List<String> edges = new ArrayList<>();
+    private boolean finished;
+    // Chained nodes that declare @Reads/@Writes, held back until the chain ends so that
+    // independent neighbours can be grouped into concurrent waves
+    private final List<Class<? extends FlowNode<S>>> chain = new ArrayList<>();
+    private final List<DependencyPlanner.Access> chainAccess = new ArrayList<>();
+    private boolean chainStarts;
 
 
     public FlowBuilder(Class<S> stateClass, ApplicationContext context) {
+        this(stateClass, context, FlowSettings.defaults());
+    }
+
+    public FlowBuilder(Class<S> stateClass, ApplicationContext context, FlowSettings settings) {
+        this(stateClass, context, settings, stateClass.getSimpleName(), "unversioned");
+    }
+
+    public FlowBuilder(Class<S> stateClass, ApplicationContext context, FlowSettings settings,
+                       String workflowId, String workflowVersion) {
+        this(reflectiveStateFactory(stateClass), context, settings, workflowId, workflowVersion);
+    }
+
+    // No reflection: the graph and every state it creates come from the given factory
+    public FlowBuilder(Function<Map<String, Object>, S> stateFactory, ApplicationContext context, FlowSettings settings,
+                       String workflowId, String workflowVersion) {
         this.context = context;
-        try {
-            // FIX: Use Reflection to instantiate StateGraph.
-            // This bypasses compile-time "Cannot resolve constructor" errors caused by
-            // strict generic bounds or minor library version differences.
-            this.graph = instantiateGraph(stateClass);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to initialize StateGraph. Check LangGraph4j version compatibility.", e);
-        }
+        this.settings = settings;
+        this.workflowId = workflowId;
+        this.workflowVersion = workflowVersion;
+        this.stateFactory = stateFactory;
+        this.graph = new StateGraph<>(stateFactory::apply);
     }
 
-    @SuppressWarnings("unchecked")
-    private StateGraph<S> instantiateGraph(Class<S> stateClass) throws Exception {
-        // Strategy 1: Try constructor that takes a Class (Most common)
+    // Looks up the public (Map) constructor once; each state is then one reflective call
+    public static <S extends AgentState> Function<Map<String, Object>, S> reflectiveStateFactory(Class<S> stateClass) {
         try {
-            Constructor<?> ctor = StateGraph.class.getConstructor(Class.class);
-            return (StateGraph<S>) ctor.newInstance(stateClass);
-        } catch (NoSuchMethodException e1) {
-            // Strategy 2: Try No-Arg constructor (Fallback)
-            try {
-                Constructor<?> ctor = StateGraph.class.getConstructor();
-                return (StateGraph<S>) ctor.newInstance();
-            } catch (NoSuchMethodException e2) {
-                // Strategy 3: Try generic Object constructor (Rare)
-                throw new RuntimeException("Could not find a valid constructor for StateGraph(Class) or StateGraph()", e1);
-            }
+            Constructor<S> ctor = stateClass.getConstructor(Map.class);
+            return data -> {
+                try {
+                    return ctor.newInstance(data);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Cannot create " + stateClass.getSimpleName(), e);
+                }
+            };
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(stateClass.getName() + " needs a public (Map<String, Object>) constructor", e);
         }
     }
 
-
     // Add a node by Class (Spring Bean lookup)
-    public FlowBuilder<S> startWith(Class<? extends AgentNode<S>> nodeClass) {
-        String name = registerNode(nodeClass);
-        try {
-            // FIX: Use START constant instead of setEntryPoint
-            graph.addEdge(START, name);
-        } catch (Exception e) {
-            throw new RuntimeException("Error setting entry point", e);
+    public FlowBuilder<S> startWith(Class<? extends FlowNode<S>> nodeClass) {
+        if (defer(nodeClass)) {
+            chainStarts = true;
+            return this;
         }
+        String name = registerNode(nodeClass);
+        // FIX: Use START constant instead of setEntryPoint
+        addEdge(START, name, "Error setting entry point");
+        registry.registerStart(name);
         this.lastNodeName = name;
         return this;
     }
 
-    public FlowBuilder<S> next(Class<? extends AgentNode<S>> nodeClass) {
-        String name = registerNode(nodeClass);
-        if (lastNodeName != null) {
-            try {
-                graph.addEdge(lastNodeName, name);
-            } catch (Exception e) {
-                throw new RuntimeException("Error adding edge", e);
-            }
+    public FlowBuilder<S> next(Class<? extends FlowNode<S>> nodeClass) {
+        if (defer(nodeClass)) {
+            return this;
         }
+        String name = registerNode(nodeClass);
+        follow(lastNodeName, name);
         this.lastNodeName = name;
         return this;
     }
 
     // Conditional Routing
     public RoutingStage choice(Class<? extends AgentRouter<S>> routerClass) {
-        AgentRouter<S> routerBean = context.getBean(routerClass);
-        return new RoutingStage(routerBean, lastNodeName);
+        flushChain();
+        if (lastNodeName == null && !openEnds.isEmpty()) {
+            throw new IllegalStateException("choice() needs one node before it; add next() after the previous routing");
+        }
+        return new RoutingStage(router(routerClass), lastNodeName);
     }
 
     // Parallel Execution
     public ParallelStage parallel() {
+        flushChain();
         return new ParallelStage(lastNodeName);
     }
 
+    // Holds back a node with declared access; an undeclared node ends the chain before it
+    private boolean defer(Class<? extends FlowNode<S>> nodeClass) {
+        DependencyPlanner.Access access = DependencyPlanner.accessOf(nodeClass);
+        if (access == null) {
+            flushChain();
+            return false;
+        }
+        chain.add(nodeClass);
+        chainAccess.add(access);
+        return true;
+    }
+
+    // Wires the held-back chain: a wave of one is a plain node, larger waves become a fork node
+    private void flushChain() {
+        if (chain.isEmpty()) return;
+        for (List<Integer> wave : DependencyPlanner.waves(chainAccess)) {
+            String name;
+            if (wave.size() == 1) {
+                name = registerNode(chain.get(wave.getFirst()));
+            } else {
+                List<String> branchNames = new ArrayList<>();
+                List<AsyncNodeAction<S>> branches = new ArrayList<>();
+                for (int index : wave) {
+                    String branchName = chain.get(index).getSimpleName();
+                    branchNames.add(branchName);
+                    branches.add(node(branchName, chain.get(index)));
+                }
+                name = "parallel(" + String.join(",", branchNames) + ")";
+                // Waves never write a key twice, so the merge needs no reducers
+                addNode(name, instrument(name,
+                        new ParallelNode<>(branchNames, branches, Map.of(), stateFactory, settings.maxParallelism())));
+            }
+            if (chainStarts) {
+                addEdge(START, name, "Error setting entry point");
+                registry.registerStart(name);
+                chainStarts = false;
+            } else {
+                follow(lastNodeName, name);
+            }
+            lastNodeName = name;
+        }
+        chain.clear();
+        chainAccess.clear();
+    }
+
     // Internal helper to register node bean into the graph
-    private String registerNode(Class<? extends AgentNode<S>> nodeClass) {
+    private String registerNode(Class<? extends FlowNode<S>> nodeClass) {
         String name = nodeClass.getSimpleName();
-        AgentNode<S> bean = context.getBean(nodeClass);
+        addNode(name, node(name, nodeClass));
+        return name;
+    }
 
-        // FIX: Wrap the bean execution to adapt to LangGraph's expected signature.
-        // LangGraph expects a return of CompletableFuture<Map<String, Object>> (Partial State Update).
+    // The only places beans are looked up; FlowRecorder overrides both to record the classes instead
+    AsyncNodeAction<S> node(String name, Class<? extends FlowNode<S>> nodeClass) {
+        return adapt(name, context.getBean(nodeClass));
+    }
+
+    AgentRouter<S> router(Class<? extends AgentRouter<S>> routerClass) {
+        return context.getBean(routerClass);
+    }
+
+    private void addNode(String name, AsyncNodeAction<S> step) {
+        AsyncNodeAction<S> action = guard(name, step);
         try {
-            graph.addNode(name, (state) -> {
-                // 1. Execute the synchronous AgentNode
-                S resultState = bean.execute(state);
-                // 2. Return the data map wrapped in a CompletableFuture
-                return CompletableFuture.completedFuture(resultState.data());
-            });
+            graph.addNode(name, action);
         } catch (Exception e) {
             throw new RuntimeException("Error adding node to graph: " + name, e);
         }
-        return name;
+        registry.registerNode(name, action, false);
+        nodes.add(name);
     }
 
-    public CompiledGraph<S> build() {
-        if (lastNodeName != null) {
-            try {
-                // FIX: Use END constant instead of setFinishPoint
-                graph.addEdge(lastNodeName, END);
-            } catch (Exception e) {
-                throw new RuntimeException("Error setting finish point", e);
+    // Connects a node to the one before it, or after a routing stage to each of its open targets
+    private void follow(String source, String name) {
+        if (source != null) {
+            addEdge(source, name, "Error adding edge");
+        } else {
+            for (String end : openEnds) {
+                addEdge(end, name, "Error adding edge");
             }
         }
+        openEnds = List.of();
+    }
+
+    // Every edge goes to both representations; START is recorded separately as the registry's start node
+    private void addEdge(String source, String target, String errorMessage) {
         try {
-            return graph.compile();
+            graph.addEdge(source, target);
+        } catch (Exception e) {
+            throw new RuntimeException(errorMessage, e);
+        }
+        edges.add(source + " -> " + target);
+        if (!START.equals(source)) {
+            registry.registerStaticEdge(source, target);
+            withOutgoing.add(source);
+        }
+    }
+
+    // Wraps a node bean for the graph: its contract adapted, memoized when marked @Memoized, instrumented
+    private AsyncNodeAction<S> adapt(String name, FlowNode<S> bean) {
+        AsyncNodeAction<S> action = adaptContract(name, bean);
+        Memoized memoized = AnnotationUtils.findAnnotation(AopUtils.getTargetClass(bean), Memoized.class);
+        if (memoized != null) {
+            action = memoize(name, bean, memoized, action);
+        }
+        return instrument(name, action);
+    }
+
+    private AsyncNodeAction<S> memoize(String name, FlowNode<S> bean, Memoized memoized, AsyncNodeAction<S> action) {
+        Reads reads = AnnotationUtils.findAnnotation(AopUtils.getTargetClass(bean), Reads.class);
+        if (reads == null) {
+            throw new IllegalArgumentException("@Memoized node " + name + " must declare the keys it depends on with @Reads");
+        }
+        MemoizedNode<S> node = new MemoizedNode<>(List.of(reads.value()), action, memoized.maxEntries(),
+                DurationStyle.detectAndParse(memoized.ttl()));
+        settings.metrics().memo(workflowId, workflowVersion, name, node.cache());
+        return node;
+    }
+
+    // Adapts our node contracts to LangGraph's expected signature:
+    // a CompletableFuture<Map<String, Object>> (Partial State Update).
+    private AsyncNodeAction<S> adaptContract(String name, FlowNode<S> bean) {
+        if (bean instanceof AsyncAgentNode<S> asyncNode) {
+            // Already non-blocking, hand the future straight to the graph
+            return asyncNode::executeAsync;
+        }
+        if (bean instanceof BatchAgentNode<S> batchNode) {
+            // Invocations from concurrent runs are grouped into executeBatch calls
+            MicroBatcher<S> batcher = new MicroBatcher<>(name, batchNode);
+            return batcher::submit;
+        }
+        if (bean instanceof DeltaAgentNode<S> deltaNode) {
+            // Blocking node that already returns its partial update
+            return state -> runBlocking(state, () -> deltaNode.update(state));
+        }
+        if (bean instanceof AgentNode<S> syncNode) {
+            // Blocking node: run it on the node executor so the driving thread is never parked.
+            // Only the keys it changed go back to the graph. Finding them still compares every key;
+            // DeltaAgentNode avoids that by returning the change itself.
+            return state -> runBlocking(state,
+                    () -> StateDelta.between(state.data(), syncNode.execute(state).data()).updated());
+        }
+        throw new IllegalArgumentException("Unsupported node type for " + name + ": " + bean.getClass().getName());
+    }
+
+    // Inside a WorkflowEngine run the worker is interrupted if the run is cancelled
+    private CompletableFuture<Map<String, Object>> runBlocking(S state, Supplier<Map<String, Object>> work) {
+        return RunContext.of(state)
+                .map(run -> run.supplyAsync(work, settings.nodeExecutor()))
+                .orElseGet(() -> CompletableFuture.supplyAsync(work, settings.nodeExecutor()));
+    }
+
+    // Enforces the run's deadline, the node timeout and the iteration cap around every graph step.
+    // Graphs invoked directly rather than through WorkflowEngine have no RunContext and run unbounded.
+    private AsyncNodeAction<S> guard(String name, AsyncNodeAction<S> action) {
+        Duration nodeTimeout = settings.limits().nodeTimeout();
+        return state -> {
+            RunContext run = RunContext.of(state).orElse(null);
+            if (run == null) {
+                return action.apply(state);
+            }
+            run.beforeStep(name);
+            // A copy: the node's own future may be cached or shared with other runs, and this run's
+            // timeout or cancellation must not fail it for them
+            CompletableFuture<Map<String, Object>> result = action.apply(state).copy();
+
+            // Cancelling the run releases the thread waiting on this step at once
+            Runnable unregister = run.onCancel(() -> result.completeExceptionally(run.cancellation()));
+            Duration budget = shortest(run.remaining(), nodeTimeout);
+            if (budget != null) {
+                result.orTimeout(budget.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            return result.whenComplete((update, error) -> {
+                unregister.run();
+                if (error instanceof TimeoutException) {
+                    // Frees whatever the timed-out node still holds (threads, model calls)
+                    run.cancel(RunCancelledException.Reason.DEADLINE, name + " did not finish within " + budget);
+                }
+            });
+        };
+    }
+
+    private static Duration shortest(Duration a, Duration b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    // Times the node from invocation until its future completes; meters are bound once, here.
+    // Sampled runs also get the node as a span on their trace.
+    private AsyncNodeAction<S> instrument(String name, AsyncNodeAction<S> action) {
+        NodeMetrics.Meters meters = settings.metrics().node(workflowId, workflowVersion, name);
+        return state -> {
+            RunTrace trace = trace(state);
+            long start = meters.start();
+            CompletableFuture<Map<String, Object>> result;
+            try {
+                result = action.apply(state);
+            } catch (RuntimeException | Error e) {
+                meters.stop(start, e);
+                if (trace != null) trace.record(RunTrace.Kind.NODE, name, start, System.nanoTime(), e.getClass().getSimpleName(), true);
+                throw e;
+            }
+            return result.whenComplete((update, error) -> {
+                meters.stop(start, error);
+                if (trace != null) {
+                    trace.record(RunTrace.Kind.NODE, name, start, System.nanoTime(),
+                            error == null ? null : error.getClass().getSimpleName(), error != null);
+                }
+            });
+        };
+    }
+
+    // Records each decision of the router as an instant on the run's trace
+    private AgentRouter<S> traced(String sourceNode, AgentRouter<S> router) {
+        return state -> {
+            String route = router.route(state);
+            RunTrace trace = trace(state);
+            if (trace != null) trace.event(RunTrace.Kind.ROUTE, sourceNode, route);
+            return route;
+        };
+    }
+
+    private static RunTrace trace(AgentState state) {
+        return RunContext.of(state).map(RunContext::trace).orElse(null);
+    }
+
+    public CompiledGraph<S> build() {
+        return build(CompileConfig.builder().build());
+    }
+
+    public CompiledGraph<S> build(CompileConfig compileConfig) {
+        finish();
+        try {
+            return graph.compile(compileConfig);
         } catch (Exception e) {
             throw new RuntimeException("Error compiling graph", e);
         }
     }
 
+    // Compiles to the array-based executor instead of a langgraph4j graph
+    public GraphExecutor<S> buildNative() {
+        finish();
+        return registry.compile(stateFactory);
+    }
+
+    /**
+     * The finished graph's edges as text, one per edge: {@code "A -> B"} for a fixed edge and
+     * {@code "A -[condition]-> B"} for a route. Two builds that produce the same list have
+     * the same nodes and edges.
+     */
+    public List<String> topology() {
+        finish();
+        return List.copyOf(edges);
+    }
+
+    private void finish() {
+        flushChain();
+        if (!finished) {
+            // The last node, and routing targets nothing followed, finish the graph
+            for (String node : List.copyOf(nodes)) {
+                if (!withOutgoing.contains(node)) {
+                    addEdge(node, END, "Error setting finish point");
+                }
+            }
+        }
+        finished = true;
+    }
+
     // Inner class for fluent routing configuration
     public class RoutingStage {
         private final AgentRouter<S> router;
         private final String sourceNode;
         private final Map<String, String> routes = new HashMap<>();
+        private final Map<String, Class<? extends FlowNode<S>>> targets = new LinkedHashMap<>();
+        private int speculativeBranches;
+        private double maxWasteRatio;
 
         public RoutingStage(AgentRouter<S> router, String sourceNode) {
-            this.router = router;
+            this.router = traced(sourceNode, router);
             this.sourceNode = sourceNode;
         }
 
-        public RoutingStage when(String condition, Class<? extends AgentNode<S>> targetClass) {
-            String targetName = registerNode(targetClass);
+        public RoutingStage when(String condition, Class<? extends FlowNode<S>> targetClass) {
+            String targetName = targetClass.getSimpleName();
+            targets.put(targetName, targetClass);
             routes.put(condition, targetName);
             return this;
         }
 
+        /**
+         * Starts up to {@code maxBranches} of the targets the router picks most often while the
+         * router is still deciding, and keeps the one it picks (see {@link RouteSpeculator}).
+         * Runs the router did not pick may use at most {@code maxWasteRatio} of the routing
+         * decisions. Only for targets without side effects.
+         */
+        public RoutingStage speculate(int maxBranches, double maxWasteRatio) {
+            if (maxBranches < 1) throw new IllegalArgumentException("maxBranches must be >= 1");
+            this.speculativeBranches = maxBranches;
+            this.maxWasteRatio = maxWasteRatio;
+            return this;
+        }
+
         public FlowBuilder<S> endRouting() {
+            RouteSpeculator<S> speculator = speculativeBranches == 0 ? null : new RouteSpeculator<>(
+                    routes, stateFactory, speculativeBranches, maxWasteRatio,
+                    settings.metrics(), workflowId, workflowVersion, sourceNode);
+            for (Map.Entry<String, Class<? extends FlowNode<S>>> target : targets.entrySet()) {
+                String targetName = target.getKey();
+                AsyncNodeAction<S> action = node(targetName, target.getValue());
+                addNode(targetName, speculator == null ? action : speculator.target(targetName, action));
+            }
+            AgentRouter<S> routing = speculator == null ? router : state -> speculator.route(state, router);
+
             try {
                 // Adapting our AgentRouter to LangGraph's conditional edge signature
                 // FIX: Wrap the router result in a CompletableFuture
                 graph.addConditionalEdges(
                         sourceNode,
-                        (state) -> CompletableFuture.completedFuture(router.route(state)),
+                        (state) -> CompletableFuture.completedFuture(routing.route(state)),
                         routes
                 );
             } catch (Exception e) {
                 throw new RuntimeException("Error adding conditional edges", e);
             }
+            registry.registerConditionalEdge(sourceNode, routing::route, routes);
+            routes.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                    .forEach(route -> edges.add(sourceNode + " -[" + route.getKey() + "]-> " + route.getValue()));
+            withOutgoing.add(sourceNode);
 
+            // The targets continue with whatever node comes next; if none does, they finish the graph
+            FlowBuilder.this.openEnds = targets.keySet().stream().filter(t -> !withOutgoing.contains(t)).toList();
             FlowBuilder.this.lastNodeName = null;
             return FlowBuilder.this;
         }
     }
 
-    // Inner class for Parallel configuration
+    // Inner class for Parallel configuration.
+    // Branches are collapsed into a single fork node that runs them concurrently and merges
+    // their outputs before the join node sees the state.
     public class ParallelStage {
         private final String sourceNode;
-        private final List<String> branchEndNodes = new ArrayList<>();
+        private final List<String> branchNames = new ArrayList<>();
+        private final List<AsyncNodeAction<S>> branches = new ArrayList<>();
+        private final Map<String, StateReducer<Object>> reducers = new HashMap<>();
+        private int maxConcurrency = settings.maxParallelism();
 
         public ParallelStage(String sourceNode) {
             this.sourceNode = sourceNode;
         }
 
-        public ParallelStage add(Class<? extends AgentNode<S>> nodeClass) {
-            String name = registerNode(nodeClass);
-            if (sourceNode != null) {
-                try {
-                    graph.addEdge(sourceNode, name);
-                } catch (Exception e) {
-                    throw new RuntimeException("Error adding parallel edge", e);
-                }
-            }
-            branchEndNodes.add(name);
+        public ParallelStage add(Class<? extends FlowNode<S>> nodeClass) {
+            String name = nodeClass.getSimpleName();
+            branchNames.add(name);
+            branches.add(node(name, nodeClass));
+            return this;
+        }
+
+        // Upper bound on branches of this stage running at the same time
+        public ParallelStage maxConcurrency(int maxConcurrency) {
+            if (maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be >= 1");
+            this.maxConcurrency = maxConcurrency;
             return this;
         }
 
-        public FlowBuilder<S> join(Class<? extends AgentNode<S>> joinNodeClass) {
+        // How to combine a key written by several branches (see StateReducer#append, #union, #max)
+        @SuppressWarnings("unchecked")
+        public <T> ParallelStage reducer(String key, StateReducer<T> reducer) {
+            reducers.put(key, (StateReducer<Object>) reducer);
+            return this;
+        }
+
+        public FlowBuilder<S> join(Class<? extends FlowNode<S>> joinNodeClass) {
+            if (branches.isEmpty()) throw new IllegalStateException("Parallel stage has no branches");
+
+            String forkName = "parallel(" + String.join(",", branchNames) + ")";
+            addNode(forkName, instrument(forkName,
+                    new ParallelNode<>(branchNames, branches, reducers, stateFactory, maxConcurrency)));
             String joinName = registerNode(joinNodeClass);
-            for (String branchEnd : branchEndNodes) {
-                try {
-                    graph.addEdge(branchEnd, joinName);
-                } catch (Exception e) {
-                    throw new RuntimeException("Error adding join edge", e);
-                }
-            }
+            follow(sourceNode, forkName);
+            addEdge(forkName, joinName, "Error adding join edge");
             FlowBuilder.this.lastNodeName = joinName;
             return FlowBuilder.this;
         }
@@ -0,0 +1,80 @@
+package dsl;
+
+import node.AgentRouter;
+import node.FlowNode;
+import node.Memoized;
+import node.Reads;
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.annotation.AnnotationUtils;
+import state.AgentState;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs a {@link WorkflowDefinition} without its node beans, for build-time processing.
+ * <p>
+ * The definition builds its graph as it would at startup. Every node and router class it
+ * names must have a bean definition, but no bean is created: node steps are placeholders that
+ * return an empty update. The graph is then compiled, so a definition that would fail at
+ * startup fails here. The result is the exact classes the graph uses and its
+ * {@link WorkflowTopology}.
+ * </p>
+ */
+public class FlowRecorder<S extends AgentState> extends FlowBuilder<S> {
+    private final ListableBeanFactory beanFactory;
+    private final Set<Class<?>> components = new LinkedHashSet<>();
+
+    public record Recording(WorkflowTopology topology, Set<Class<?>> components) {
+    }
+
+    private FlowRecorder(WorkflowDefinition<S> definition, ListableBeanFactory beanFactory) {
+        super(definition.stateFactory(), null, FlowSettings.defaults(), definition.getWorkflowId(), definition.getVersion());
+        this.beanFactory = beanFactory;
+    }
+
+    public static <S extends AgentState> Recording record(WorkflowDefinition<S> definition,
+                                                          ListableBeanFactory beanFactory) {
+        FlowRecorder<S> recorder = new FlowRecorder<>(definition, beanFactory);
+        definition.define(recorder);
+        recorder.build();
+        return new Recording(
+                new WorkflowTopology(definition.getWorkflowId(), definition.getVersion(), recorder.topology()),
+                Collections.unmodifiableSet(recorder.components));
+    }
+
+    @Override
+    AsyncNodeAction<S> node(String name, Class<? extends FlowNode<S>> nodeClass) {
+        require(nodeClass);
+        // Checked here because the node itself, which FlowBuilder would read them from, does not exist
+        Memoized memoized = AnnotationUtils.findAnnotation(nodeClass, Memoized.class);
+        if (memoized != null) {
+            if (AnnotationUtils.findAnnotation(nodeClass, Reads.class) == null) {
+                throw new IllegalArgumentException("@Memoized node " + name + " must declare the keys it depends on with @Reads");
+            }
+            DurationStyle.detectAndParse(memoized.ttl());
+        }
+        return state -> CompletableFuture.completedFuture(Map.of());
+    }
+
+    @Override
+    AgentRouter<S> router(Class<? extends AgentRouter<S>> routerClass) {
+        require(routerClass);
+        return state -> {
+            throw new IllegalStateException("Recorded graphs are not run");
+        };
+    }
+
+    private void require(Class<?> type) {
+        if (beanFactory.getBeanNamesForType(type, true, false).length == 0) {
+            throw new NoSuchBeanDefinitionException(type);
+        }
+        components.add(type);
+    }
+}
@@ -0,0 +1,37 @@
+package dsl;
+
+import engine.RunLimits;
+import observability.NodeMetrics;
+import observability.TraceRecorder;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Engine-wide knobs applied to every graph a {@link FlowBuilder} compiles.
+ *
+ * @param nodeExecutor   where synchronous AgentNodes and parallel branches run
+ * @param maxParallelism default cap on concurrently running branches per parallel stage
+ * @param metrics        timers/gauges recorded around every node
+ * @param limits         default run timeout, node timeout and iteration cap
+ * @param tracer         per-run timelines of node, routing and model spans
+ */
+public record FlowSettings(Executor nodeExecutor, int maxParallelism, NodeMetrics metrics, RunLimits limits,
+                           TraceRecorder tracer) {
+
+    public FlowSettings {
+        if (maxParallelism < 1) throw new IllegalArgumentException("maxParallelism must be >= 1");
+    }
+
+    public FlowSettings(Executor nodeExecutor, int maxParallelism, NodeMetrics metrics, RunLimits limits) {
+        this(nodeExecutor, maxParallelism, metrics, limits, TraceRecorder.disabled());
+    }
+
+    public FlowSettings(Executor nodeExecutor, int maxParallelism, NodeMetrics metrics) {
+        this(nodeExecutor, maxParallelism, metrics, RunLimits.none());
+    }
+
+    // Everything on the calling thread, branch by branch (the behaviour before these settings existed)
+    public static FlowSettings defaults() {
+        return new FlowSettings(Runnable::run, 1, NodeMetrics.noop());
+    }
+}
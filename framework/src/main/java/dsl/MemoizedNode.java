@@ -0,0 +1,77 @@
+package dsl;
+
+import cache.BoundedCache;
+import cache.SingleFlight;
+import engine.RunCancelledException;
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import state.AgentState;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Wraps a {@link node.Memoized} node: its update is cached under the values of the keys it
+ * reads, and runs that reach the same values concurrently share one execution.
+ * <p>
+ * Keys compare by {@code equals} on the values, so state values should be immutable (or at
+ * least not mutated after a node has read them), as everywhere else in a graph.
+ * </p>
+ * <p>
+ * A shared execution runs within the run that started it. If that run is cancelled or passes
+ * its deadline, the runs that joined it execute the node again on their own.
+ * </p>
+ */
+final class MemoizedNode<S extends AgentState> implements AsyncNodeAction<S> {
+    private final List<String> reads;
+    private final AsyncNodeAction<S> node;
+    private final BoundedCache<List<Object>, Map<String, Object>> cache;
+    private final SingleFlight<List<Object>, Map<String, Object>> inFlight = new SingleFlight<>();
+
+    MemoizedNode(List<String> reads, AsyncNodeAction<S> node, int maxEntries, Duration ttl) {
+        this.reads = List.copyOf(reads);
+        this.node = node;
+        this.cache = new BoundedCache<>(maxEntries, ttl);
+    }
+
+    BoundedCache<List<Object>, Map<String, Object>> cache() {
+        return cache;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> apply(S state) {
+        // ArrayList rather than List.of: read keys may be absent, i.e. null
+        List<Object> key = new ArrayList<>(reads.size());
+        for (String read : reads) {
+            key.add(state.data().get(read));
+        }
+
+        Map<String, Object> cached = cache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return inFlight.execute(key, () -> cache.peek(key), () -> node.apply(state).thenApply(update -> {
+            // Shared by every run that hits it; nobody may change it
+            Map<String, Object> stored = update == null ? Map.of() : Collections.unmodifiableMap(new HashMap<>(update));
+            cache.put(key, stored);
+            return stored;
+        })).exceptionallyCompose(error -> {
+            // Another run's cancellation is no reason for this one to fail
+            if (unwrap(error) instanceof RunCancelledException cancelled
+                    && !Objects.equals(cancelled.getRunId(), state.getRunId())) {
+                return apply(state);
+            }
+            return CompletableFuture.failedFuture(error);
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
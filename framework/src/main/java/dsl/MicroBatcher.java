@@ -0,0 +1,118 @@
+package dsl;
+
+import engine.RunContext;
+import node.BatchAgentNode;
+import state.AgentState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups concurrent invocations of a {@link BatchAgentNode} into {@code executeBatch} calls.
+ * A batch is flushed when it is full or when its oldest entry has waited {@code maxDelay}.
+ * <p>
+ * Every batch runs on a virtual thread of its own, whatever the node executor: with the
+ * {@code CALLER} executor a timer-flushed batch would otherwise block the one timer thread
+ * shared by every batch node. Runs already cancelled when their batch starts are failed with
+ * their cancellation and left out of it. A run cancelled while its batch runs stops waiting
+ * (see {@code FlowBuilder#guard}), and the batch finishes for the others.
+ * </p>
+ */
+final class MicroBatcher<S extends AgentState> {
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+    private record Entry<S>(S state, CompletableFuture<Map<String, Object>> result) {}
+
+    private final String name;
+    private final BatchAgentNode<S> node;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private List<Entry<S>> pending = new ArrayList<>();
+    private ScheduledFuture<?> flushTimer;
+
+    MicroBatcher(String name, BatchAgentNode<S> node) {
+        this.name = name;
+        this.node = node;
+        this.maxBatchSize = Math.max(1, node.maxBatchSize());
+        this.maxDelayNanos = node.maxDelay().toNanos();
+    }
+
+    CompletableFuture<Map<String, Object>> submit(S state) {
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        List<Entry<S>> full = null;
+        synchronized (this) {
+            pending.add(new Entry<>(state, result));
+            if (pending.size() >= maxBatchSize) {
+                full = take();
+            } else if (pending.size() == 1) {
+                flushTimer = TIMER.schedule(this::flushDue, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return result;
+    }
+
+    private void flushDue() {
+        List<Entry<S>> due;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            due = take();
+        }
+        dispatch(due);
+    }
+
+    // Caller holds the lock
+    private List<Entry<S>> take() {
+        List<Entry<S>> batch = pending;
+        pending = new ArrayList<>();
+        if (flushTimer != null) {
+            flushTimer.cancel(false);
+            flushTimer = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(List<Entry<S>> due) {
+        Thread.ofVirtual().name("batch-" + name).start(() -> {
+            List<Entry<S>> batch = new ArrayList<>(due.size());
+            for (Entry<S> entry : due) {
+                RunContext run = RunContext.of(entry.state()).orElse(null);
+                if (run != null && run.isCancelled()) {
+                    entry.result().completeExceptionally(run.cancellation());
+                } else {
+                    batch.add(entry);
+                }
+            }
+            if (batch.isEmpty()) return;
+            try {
+                List<S> states = new ArrayList<>(batch.size());
+                for (Entry<S> entry : batch) states.add(entry.state());
+
+                List<Map<String, Object>> updates = node.executeBatch(states);
+                if (updates == null || updates.size() != batch.size()) {
+                    throw new IllegalStateException(name + " returned " + (updates == null ? "null" : updates.size())
+                            + " updates for " + batch.size() + " states");
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).result().complete(updates.get(i));
+                }
+            } catch (Throwable t) {
+                for (Entry<S> entry : batch) entry.result().completeExceptionally(t);
+            }
+        });
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name("node-batcher").daemon().factory());
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -0,0 +1,127 @@
+package dsl;
+
+import engine.RunContext;
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import state.AgentState;
+import state.StateReducer;
+import state.StateValues;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Fan-out node produced by {@link FlowBuilder.ParallelStage}.
+ * <p>
+ * Runs every branch against its own copy of the incoming state, at most {@code maxConcurrency}
+ * at a time, and folds the branch outputs into a single partial update. Lists, sets and maps in
+ * the state are copied for each branch, so a branch may change them in place; other mutable
+ * values are shared and must not be (see {@link StateValues}). Keys written by more
+ * than one branch must have a {@link StateReducer}; otherwise the join fails instead of
+ * silently dropping one of the writes. Once the run is cancelled no further branch starts.
+ * </p>
+ */
+final class ParallelNode<S extends AgentState> implements AsyncNodeAction<S> {
+    private final List<String> branchNames;
+    private final List<AsyncNodeAction<S>> branches;
+    private final Map<String, StateReducer<Object>> reducers;
+    private final Function<Map<String, Object>, S> stateFactory;
+    private final int maxConcurrency;
+
+    ParallelNode(List<String> branchNames,
+                 List<AsyncNodeAction<S>> branches,
+                 Map<String, StateReducer<Object>> reducers,
+                 Function<Map<String, Object>, S> stateFactory,
+                 int maxConcurrency) {
+        this.branchNames = List.copyOf(branchNames);
+        this.branches = List.copyOf(branches);
+        this.reducers = Map.copyOf(reducers);
+        this.stateFactory = stateFactory;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Map<String, Object>> apply(S state) {
+        Map<String, Object> input = state.data();
+        List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>(branches.size());
+        List<Map<String, Object>> branchInputs = new ArrayList<>(branches.size());
+        for (int i = 0; i < branches.size(); i++) {
+            results.add(new CompletableFuture<>());
+            branchInputs.add(StateValues.copyContainers(input));
+        }
+
+        // Start up to maxConcurrency branches; each completion pulls the next one in
+        RunContext run = RunContext.of(state).orElse(null);
+        AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < Math.min(maxConcurrency, branches.size()); i++) {
+            launchNext(branchInputs, run, next, results);
+        }
+
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> merge(input, branchInputs, results));
+    }
+
+    private void launchNext(List<Map<String, Object>> branchInputs, RunContext run, AtomicInteger next,
+                            List<CompletableFuture<Map<String, Object>>> results) {
+        int index = next.getAndIncrement();
+        if (index >= branches.size()) return;
+
+        CompletableFuture<Map<String, Object>> branch;
+        try {
+            if (run != null) run.throwIfCancelled();
+            // Each branch gets a private state whose containers are its own, so in-place changes
+            // cannot leak between branches
+            branch = branches.get(index).apply(stateFactory.apply(branchInputs.get(index)));
+        } catch (Throwable t) {
+            branch = CompletableFuture.failedFuture(t);
+        }
+
+        CompletableFuture<Map<String, Object>> slot = results.get(index);
+        branch.whenComplete((output, error) -> {
+            if (error != null) slot.completeExceptionally(error);
+            else slot.complete(output);
+            launchNext(branchInputs, run, next, results);
+        });
+    }
+
+    private Map<String, Object> merge(Map<String, Object> input, List<Map<String, Object>> branchInputs,
+                                      List<CompletableFuture<Map<String, Object>>> results) {
+        Map<String, Object> merged = new HashMap<>();
+        Map<String, String> writers = new HashMap<>();
+
+        for (int i = 0; i < results.size(); i++) {
+            String branchName = branchNames.get(i);
+            Map<String, Object> output = results.get(i).join();
+            if (output == null) continue;
+            Map<String, Object> given = branchInputs.get(i);
+
+            for (Map.Entry<String, Object> entry : output.entrySet()) {
+                String key = entry.getKey();
+                Object value = entry.getValue();
+                // Branches may return the whole state; only keys they actually changed count as writes.
+                // A container handed back as given may have been changed in place, hence equals.
+                if (input.containsKey(key) && (input.get(key) == value
+                        || (given.get(key) == value && Objects.equals(input.get(key), value)))) continue;
+
+                StateReducer<Object> reducer = reducers.get(key);
+                if (reducer != null) {
+                    Object current = merged.containsKey(key) ? merged.get(key) : input.get(key);
+                    merged.put(key, reducer.reduce(current, value));
+                } else if (writers.containsKey(key) && !Objects.equals(merged.get(key), value)) {
+                    throw new IllegalStateException("Parallel branches " + writers.get(key) + " and " + branchName
+                            + " both wrote '" + key + "'. Register a reducer for it on the parallel stage.");
+                } else {
+                    merged.put(key, value);
+                }
+                writers.putIfAbsent(key, branchName);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,173 @@
+package dsl;
+
+import engine.RunContext;
+import io.micrometer.core.instrument.Counter;
+import node.AgentRouter;
+import observability.NodeMetrics;
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import state.AgentState;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Speculative mode of a {@link FlowBuilder.RoutingStage}: while a slow router decides, the
+ * targets it has picked most often so far already run on a private copy of the state.
+ * <p>
+ * The target the router picks consumes its speculative result instead of running again; the
+ * others are cancelled and their output dropped. Cancellation is best effort: a blocking node
+ * keeps its thread until it returns (or the run is cancelled), so targets should be free of side
+ * effects. Waste is capped like hedged LLM calls: every routing decision earns
+ * {@code maxWasteRatio} of a credit, every speculative run the router did not pick costs one.
+ * Speculation only happens inside {@code WorkflowEngine} runs, which give the stash its key.
+ * </p>
+ * <p>
+ * Metrics, tagged with the routing node: {@code agent.route.speculation.launched},
+ * {@code .hits}, {@code .misses} and {@code .skipped} (no credit left).
+ * </p>
+ */
+final class RouteSpeculator<S extends AgentState> {
+    // Decisions observed before the first speculation
+    private static final long MIN_SAMPLES = 20;
+    // Targets picked less often than this are never started early
+    private static final double MIN_PROBABILITY = 0.2;
+    private static final double MAX_CREDITS = 10;
+
+    // A target started ahead of the router; unregister drops the run-cancellation hook
+    private record Speculation(CompletableFuture<Map<String, Object>> result, Runnable unregister) {}
+
+    private final Map<String, String> routes;
+    private final Function<Map<String, Object>, S> stateFactory;
+    private final int maxBranches;
+    private final double maxWasteRatio;
+    private final Map<String, AsyncNodeAction<S>> targets = new LinkedHashMap<>();
+    private final Map<String, LongAdder> picks = new ConcurrentHashMap<>();
+    private final LongAdder decisions = new LongAdder();
+    // Keyed by run id and target name
+    private final Map<String, Speculation> stash = new ConcurrentHashMap<>();
+    private final Counter launched;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter skipped;
+    private double credits;
+
+    RouteSpeculator(Map<String, String> routes, Function<Map<String, Object>, S> stateFactory,
+                    int maxBranches, double maxWasteRatio,
+                    NodeMetrics metrics, String workflowId, String workflowVersion, String sourceNode) {
+        this.routes = Map.copyOf(routes);
+        this.stateFactory = stateFactory;
+        this.maxBranches = maxBranches;
+        this.maxWasteRatio = maxWasteRatio;
+        this.launched = metrics.counter("agent.route.speculation.launched", workflowId, workflowVersion, sourceNode);
+        this.hits = metrics.counter("agent.route.speculation.hits", workflowId, workflowVersion, sourceNode);
+        this.misses = metrics.counter("agent.route.speculation.misses", workflowId, workflowVersion, sourceNode);
+        this.skipped = metrics.counter("agent.route.speculation.skipped", workflowId, workflowVersion, sourceNode);
+    }
+
+    // Wraps a target so it takes over a speculative result when there is one for its run
+    AsyncNodeAction<S> target(String name, AsyncNodeAction<S> action) {
+        targets.put(name, action);
+        return state -> {
+            String runId = state.getRunId();
+            Speculation speculation = runId == null ? null : stash.remove(key(runId, name));
+            if (speculation == null) {
+                return action.apply(state);
+            }
+            speculation.unregister().run();
+            return speculation.result();
+        };
+    }
+
+    // Runs the router with the likely targets already started
+    String route(S state, AgentRouter<S> router) {
+        List<String> started = launch(state);
+        String route;
+        try {
+            route = router.route(state);
+        } catch (RuntimeException | Error e) {
+            for (String target : started) discard(state.getRunId(), target);
+            throw e;
+        }
+
+        String chosen = routes.get(route);
+        decisions.increment();
+        if (chosen != null) picks.computeIfAbsent(chosen, k -> new LongAdder()).increment();
+        earnCredit();
+        for (String target : started) {
+            if (target.equals(chosen)) {
+                hits.increment();
+                refundCredit(); // a used run is not waste
+            } else {
+                misses.increment();
+                discard(state.getRunId(), target);
+            }
+        }
+        return route;
+    }
+
+    private List<String> launch(S state) {
+        RunContext run = RunContext.of(state).orElse(null);
+        long total = decisions.sum();
+        if (run == null || total < MIN_SAMPLES) return List.of();
+
+        List<Map.Entry<String, LongAdder>> ranked = new ArrayList<>(picks.entrySet());
+        ranked.sort(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed());
+
+        List<String> started = new ArrayList<>(maxBranches);
+        for (Map.Entry<String, LongAdder> candidate : ranked) {
+            if (started.size() == maxBranches || candidate.getValue().sum() < MIN_PROBABILITY * total) break;
+            if (!spendCredit()) {
+                skipped.increment();
+                break;
+            }
+            String target = candidate.getKey();
+            String key = key(run.runId(), target);
+            CompletableFuture<Map<String, Object>> result;
+            try {
+                // A private copy, so nothing the speculative run does can reach the real state
+                result = targets.get(target).apply(stateFactory.apply(state.data()));
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            Runnable unregister = run.onCancel(() -> discard(run.runId(), target));
+            stash.put(key, new Speculation(result, unregister));
+            if (run.isCancelled()) discard(run.runId(), target); // cancelled before the hook was in place
+            launched.increment();
+            started.add(target);
+        }
+        return started;
+    }
+
+    private void discard(String runId, String target) {
+        Speculation speculation = stash.remove(key(runId, target));
+        if (speculation != null) {
+            speculation.unregister().run();
+            speculation.result().cancel(true);
+        }
+    }
+
+    private static String key(String runId, String target) {
+        return runId + '\u0000' + target;
+    }
+
+    private synchronized void earnCredit() {
+        credits = Math.min(MAX_CREDITS, credits + maxWasteRatio);
+    }
+
+    private synchronized void refundCredit() {
+        credits = Math.min(MAX_CREDITS, credits + 1);
+    }
+
+    private synchronized boolean spendCredit() {
+        if (credits < 1) return false;
+        credits -= 1;
+        return true;
+    }
+}
@@ -2,6 +2,9 @@ package dsl;
 
 import state.AgentState;
 
+import java.util.Map;
+import java.util.function.Function;
+
 // The Contract for defining a Workflow
 public interface WorkflowDefinition<S extends AgentState> {
     String getWorkflowId(); // Unique ID for tracking
@@ -9,4 +12,10 @@ public interface WorkflowDefinition<S extends AgentState> {
 
     void define(FlowBuilder<S> builder);
     Class<S> getStateType();
+
+    // Creates the state from a data map. Override with a constructor reference (MyState::new)
+    // to keep reflection out of startup and native images; the default looks the constructor up.
+    default Function<Map<String, Object>, S> stateFactory() {
+        return FlowBuilder.reflectiveStateFactory(getStateType());
+    }
 }
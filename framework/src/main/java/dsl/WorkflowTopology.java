@@ -0,0 +1,19 @@
+package dsl;
+
+import java.util.List;
+
+/**
+ * The edges of one workflow version's graph, as {@link FlowBuilder#topology()} lists them.
+ * <p>
+ * AOT processing records one per workflow and registers it as a bean of the optimized
+ * application. {@code WorkflowEngine} compares each graph it builds at startup with the recorded
+ * one. A definition that builds a different graph at runtime, for example because it reads a
+ * property, would need node classes that have no reflection hints in the native image.
+ * </p>
+ */
+public record WorkflowTopology(String workflowId, String version, List<String> edges) {
+
+    public WorkflowTopology {
+        edges = List.copyOf(edges);
+    }
+}
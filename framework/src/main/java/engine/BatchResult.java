@@ -0,0 +1,26 @@
+package engine;
+
+import state.AgentState;
+
+/**
+ * Outcome of one case of {@link WorkflowEngine#runBatch}.
+ *
+ * @param index  position of the case in the input
+ * @param input  the state the case was started with
+ * @param result final state; null when the case failed
+ * @param error  why the case failed; null on success
+ */
+public record BatchResult<S extends AgentState>(int index, S input, S result, Throwable error) {
+
+    public static <S extends AgentState> BatchResult<S> success(int index, S input, S result) {
+        return new BatchResult<>(index, input, result, null);
+    }
+
+    public static <S extends AgentState> BatchResult<S> failure(int index, S input, Throwable error) {
+        return new BatchResult<>(index, input, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
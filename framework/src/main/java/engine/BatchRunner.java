@@ -0,0 +1,97 @@
+package engine;
+
+import state.AgentState;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiFunction;
+
+/**
+ * Pull-driven executor behind {@link WorkflowEngine#runBatch}.
+ * <p>
+ * Cases are read from the source only when a slot is free, and a slot is only freed when the
+ * consumer takes a result. At most {@code parallelism} cases are therefore running or waiting
+ * to be consumed, whatever the size of the batch or the speed of the consumer.
+ * </p>
+ */
+final class BatchRunner<S extends AgentState> implements Iterator<BatchResult<S>>, AutoCloseable {
+    private final Iterator<S> source;
+    // Runs a case under the given run id
+    private final BiFunction<S, String, S> run;
+    private final int parallelism;
+    private final BlockingQueue<BatchResult<S>> finished = new LinkedBlockingQueue<>();
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    // Run ids of the cases in progress, so that closing can cancel them
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+    private int started;
+    private int returned;
+
+    BatchRunner(Iterator<S> source, BiFunction<S, String, S> run, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+        this.source = source;
+        this.run = run;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public boolean hasNext() {
+        fill();
+        return returned < started;
+    }
+
+    @Override
+    public BatchResult<S> next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        try {
+            BatchResult<S> result = finished.take();
+            returned++;
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while waiting for batch results", e);
+        }
+    }
+
+    // Abandons the rest of the batch. Cases in progress are cancelled like any run (RunContext#cancel):
+    // interrupting their threads would not stop them, as graph runtimes wait uninterruptibly.
+    @Override
+    public void close() {
+        closed = true;
+        workers.shutdownNow();
+        for (String runId : running) {
+            RunContext.cancelWhenOpen(runId);
+            // Finished in the meantime: its worker has already forgotten it
+            if (!running.contains(runId)) RunContext.forget(runId);
+        }
+    }
+
+    private void fill() {
+        while (started - returned < parallelism && !workers.isShutdown() && source.hasNext()) {
+            S input = source.next();
+            int index = started++;
+            String runId = UUID.randomUUID().toString();
+            workers.execute(() -> {
+                // Added before looking at closed, as close() sets it before it looks at running
+                running.add(runId);
+                try {
+                    if (closed) return;
+                    finished.add(BatchResult.success(index, input, run.apply(input, runId)));
+                } catch (Throwable t) {
+                    finished.add(BatchResult.failure(index, input, t));
+                } finally {
+                    running.remove(runId);
+                    RunContext.forget(runId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package engine;
+
+import state.AgentState;
+
+// Decides which route a conditional edge takes; the result is looked up in the edge's route table
+@FunctionalInterface
+public interface ConditionEvaluator<S extends AgentState> {
+    String determineNextNode(S state);
+}
@@ -0,0 +1,11 @@
+package engine;
+
+// Which runtime executes compiled workflows (agent.execution.engine)
+public enum ExecutionEngine {
+    // Native executor unless a langgraph4j feature (checkpointing) is enabled
+    AUTO,
+    // Always compile to a langgraph4j CompiledGraph
+    LANGGRAPH,
+    // Always use the array-based GraphExecutor
+    NATIVE
+}
@@ -0,0 +1,80 @@
+package engine;
+
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import state.AgentState;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Lightweight execution engine for graphs compiled by {@link GraphRegistry}.
+ * <p>
+ * Nodes are addressed by int id; successors and route tables live in flat arrays, so a step is
+ * one node call, an optional route-key scan over a handful of entries and an array read.
+ * No per-step map lookups, iterators or streams. It covers plain sequences, routing, loops and
+ * parallel fork nodes; checkpointing and other langgraph4j features need the langgraph engine.
+ * </p>
+ */
+public final class GraphExecutor<S extends AgentState> {
+    static final int END = -1;
+    static final int ROUTED = -2;
+
+    private final String[] names;
+    private final AsyncNodeAction<S>[] actions;
+    private final int[] next;
+    private final ConditionEvaluator<S>[] routers;
+    private final String[][] routeKeys;
+    private final int[][] routeTargets;
+    private final int start;
+    private final Function<Map<String, Object>, S> stateFactory;
+
+    GraphExecutor(String[] names,
+                  AsyncNodeAction<S>[] actions,
+                  int[] next,
+                  ConditionEvaluator<S>[] routers,
+                  String[][] routeKeys,
+                  int[][] routeTargets,
+                  int start,
+                  Function<Map<String, Object>, S> stateFactory) {
+        this.names = names;
+        this.actions = actions;
+        this.next = next;
+        this.routers = routers;
+        this.routeKeys = routeKeys;
+        this.routeTargets = routeTargets;
+        this.start = start;
+        this.stateFactory = stateFactory;
+    }
+
+    public S run(Map<String, Object> input) {
+        // Working copy of the data; states are snapshots taken from it after each change
+        Map<String, Object> data = new HashMap<>(input);
+        S state = stateFactory.apply(data);
+
+        int current = start;
+        while (current != END) {
+            Map<String, Object> update = actions[current].apply(state).join();
+            if (update != null && !update.isEmpty()) {
+                data.putAll(update);
+                state = stateFactory.apply(data);
+            }
+            int successor = next[current];
+            current = successor == ROUTED ? route(current, state) : successor;
+        }
+        return state;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private int route(int node, S state) {
+        String condition = routers[node].determineNextNode(state);
+        String[] keys = routeKeys[node];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(condition)) return routeTargets[node][i];
+        }
+        throw new IllegalStateException("Router of " + names[node] + " returned unmapped route '" + condition + "'");
+    }
+}
@@ -1,11 +1,14 @@
 package engine;
 
-import core.AgentState;
-import core.ConditionEvaluator;
-import core.NodeAction;
-import org.springframework.stereotype.Service;
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import state.AgentState;
+
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Function;
+
+import static org.bsc.langgraph4j.GraphDefinition.END;
 
 /**
  * The internal registry that holds the structure of the compiled graph.
@@ -14,40 +17,52 @@ import java.util.Map;
  * <ul>
  * <li>Node Names -> Node Action Instances</li>
  * <li>Source Nodes -> Target Nodes (Static Edges)</li>
- * <li>Source Nodes -> Condition Evaluators (Dynamic Edges)</li>
+ * <li>Source Nodes -> Condition Evaluators + Route Tables (Dynamic Edges)</li>
  * </ul>
  * </p>
  * <p>
- * It is populated at startup by {@link com.springgraph.config.GraphAutoConfigurer} and
- * queried at runtime by {@link GraphExecutor}.
+ * It is populated by {@link dsl.FlowBuilder} while a workflow is defined and compiled by
+ * {@link #compile(Function)} into a {@link GraphExecutor}, which replaces every name with an
+ * int id so nothing here is consulted at runtime.
  * </p>
  */
-@Service
-public class GraphRegistry {
-    private final Map<String, NodeAction> nodes = new HashMap<>();
+public class GraphRegistry<S extends AgentState> {
+    // Insertion order fixes the int id of each node
+    private final Map<String, AsyncNodeAction<S>> nodes = new LinkedHashMap<>();
 
     // Static Edges: NodeName -> NextNodeName
     private final Map<String, String> staticEdges = new HashMap<>();
 
-    // Conditional Edges: NodeName -> EvaluatorInstance
-    private final Map<String, ConditionEvaluator> conditionalEdges = new HashMap<>();
+    // Conditional Edges: NodeName -> EvaluatorInstance, NodeName -> (condition -> NextNodeName)
+    private final Map<String, ConditionEvaluator<S>> conditionalEdges = new HashMap<>();
+    private final Map<String, Map<String, String>> routeTables = new HashMap<>();
 
     private String startNode;
 
-    public void registerNode(String name, NodeAction action, boolean isStart) {
-        nodes.put(name, action);
+    public void registerNode(String name, AsyncNodeAction<S> action, boolean isStart) {
+        if (nodes.putIfAbsent(name, action) != null) {
+            throw new IllegalStateException("Node registered twice: " + name);
+        }
         if (isStart) this.startNode = name;
     }
 
+    public void registerStart(String name) {
+        this.startNode = name;
+    }
+
     public void registerStaticEdge(String source, String target) {
-        staticEdges.put(source, target);
+        String previous = staticEdges.putIfAbsent(source, target);
+        if (previous != null && !previous.equals(target)) {
+            throw new IllegalStateException("Node " + source + " already continues to " + previous);
+        }
     }
 
-    public void registerConditionalEdge(String source, ConditionEvaluator evaluator) {
+    public void registerConditionalEdge(String source, ConditionEvaluator<S> evaluator, Map<String, String> routes) {
         conditionalEdges.put(source, evaluator);
+        routeTables.put(source, Map.copyOf(routes));
     }
 
-    public NodeAction getNode(String name) {
+    public AsyncNodeAction<S> getNode(String name) {
         return nodes.get(name);
     }
 
@@ -55,12 +70,67 @@ public class GraphRegistry {
         return startNode;
     }
 
-    // UPDATED LOGIC: Check conditional first, then static
-    public String getNextNode(String current, AgentState state) {
+    // Check conditional first, then static
+    public String getNextNode(String current, S state) {
         if (conditionalEdges.containsKey(current)) {
             // Run the logic to decide the path
-            return conditionalEdges.get(current).determineNextNode(state);
+            String condition = conditionalEdges.get(current).determineNextNode(state);
+            return routeTables.get(current).get(condition);
         }
         return staticEdges.get(current);
     }
-}
\ No newline at end of file
+
+    /**
+     * Interns node names to ids and flattens edges into arrays.
+     * A node without an outgoing edge ends the run.
+     */
+    @SuppressWarnings("unchecked")
+    public GraphExecutor<S> compile(Function<Map<String, Object>, S> stateFactory) {
+        if (startNode == null) throw new IllegalStateException("Graph has no start node");
+
+        int size = nodes.size();
+        Map<String, Integer> ids = new HashMap<>();
+        String[] names = new String[size];
+        AsyncNodeAction<S>[] actions = new AsyncNodeAction[size];
+        int index = 0;
+        for (Map.Entry<String, AsyncNodeAction<S>> node : nodes.entrySet()) {
+            ids.put(node.getKey(), index);
+            names[index] = node.getKey();
+            actions[index] = node.getValue();
+            index++;
+        }
+
+        int[] next = new int[size];
+        ConditionEvaluator<S>[] routers = new ConditionEvaluator[size];
+        String[][] routeKeys = new String[size][];
+        int[][] routeTargets = new int[size][];
+
+        for (int id = 0; id < size; id++) {
+            String name = names[id];
+            ConditionEvaluator<S> router = conditionalEdges.get(name);
+            if (router != null) {
+                Map<String, String> routes = routeTables.get(name);
+                next[id] = GraphExecutor.ROUTED;
+                routers[id] = router;
+                routeKeys[id] = routes.keySet().toArray(String[]::new);
+                routeTargets[id] = new int[routeKeys[id].length];
+                for (int r = 0; r < routeKeys[id].length; r++) {
+                    routeTargets[id][r] = resolve(routes.get(routeKeys[id][r]), ids);
+                }
+            } else {
+                String target = staticEdges.get(name);
+                next[id] = target == null ? GraphExecutor.END : resolve(target, ids);
+            }
+        }
+
+        return new GraphExecutor<>(names, actions, next, routers, routeKeys, routeTargets,
+                resolve(startNode, ids), stateFactory);
+    }
+
+    private static int resolve(String target, Map<String, Integer> ids) {
+        if (END.equals(target)) return GraphExecutor.END;
+        Integer id = ids.get(target);
+        if (id == null) throw new IllegalStateException("Edge points to unknown node: " + target);
+        return id;
+    }
+}
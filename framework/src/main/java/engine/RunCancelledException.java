@@ -0,0 +1,22 @@
+package engine;
+
+/**
+ * A run stopped before finishing: its deadline passed, it hit the iteration cap, or it was
+ * cancelled through {@link RunContext#cancel(String)}.
+ */
+public class RunCancelledException extends RuntimeException {
+    public enum Reason { DEADLINE, ITERATION_LIMIT, CANCELLED }
+
+    private final String runId;
+    private final Reason reason;
+
+    public RunCancelledException(String runId, Reason reason, String message) {
+        super(message);
+        this.runId = runId;
+        this.reason = reason;
+    }
+
+    public String getRunId() { return runId; }
+
+    public Reason getReason() { return reason; }
+}
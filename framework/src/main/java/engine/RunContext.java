@@ -0,0 +1,214 @@
+package engine;
+
+import observability.RunTrace;
+import org.slf4j.MDC;
+import state.AgentState;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Deadline, iteration budget and cancellation of one run.
+ * <p>
+ * Opened by {@link WorkflowEngine} for every run and found again from any thread through the
+ * run id in the state ({@link #of(AgentState)}), or through {@link #current()} inside node code
+ * started by the framework. It also carries the run's {@link RunTrace} when the run is sampled,
+ * and the MDC of the thread that started it, which worker threads take over. Cancelling a run
+ * (explicitly or because the deadline passed) completes the driving node future exceptionally,
+ * interrupts threads blocked in synchronous nodes and stops parallel stages from launching
+ * further branches.
+ * </p>
+ */
+public final class RunContext {
+    private static final Map<String, RunContext> ACTIVE = new ConcurrentHashMap<>();
+    // Runs to cancel as soon as they open, for callers that cannot tell whether a run has started
+    private static final Set<String> CANCEL_ON_OPEN = ConcurrentHashMap.newKeySet();
+    private static final ScopedValue<RunContext> CURRENT = ScopedValue.newInstance();
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+    private final String runId;
+    private final long deadlineNanos; // Long.MAX_VALUE when the run has no deadline
+    private final int maxIterations;  // 0 when uncapped
+    private final AtomicInteger iterations = new AtomicInteger();
+    private final Set<Runnable> cancelHooks = ConcurrentHashMap.newKeySet();
+    private final CompletableFuture<RunCancelledException> cancelled = new CompletableFuture<>();
+    private ScheduledFuture<?> deadlineTimer;
+    private final Map<String, String> mdc; // logging context of the thread driving the run
+    private volatile RunTrace trace;
+
+    private RunContext(String runId, Duration timeout, int maxIterations) {
+        this.runId = runId;
+        this.deadlineNanos = timeout == null ? Long.MAX_VALUE : System.nanoTime() + timeout.toNanos();
+        this.maxIterations = maxIterations;
+        this.mdc = MDC.getCopyOfContextMap();
+    }
+
+    static RunContext open(String runId, Duration timeout, int maxIterations) {
+        RunContext run = new RunContext(runId, timeout, maxIterations);
+        if (ACTIVE.putIfAbsent(runId, run) != null) {
+            throw new IllegalStateException("Run " + runId + " is already executing");
+        }
+        // Registered before looking, as cancelWhenOpen adds before it looks: one of the two sees the other
+        if (CANCEL_ON_OPEN.contains(runId)) {
+            run.cancel(RunCancelledException.Reason.CANCELLED, "Run " + runId + " was cancelled");
+        }
+        if (timeout != null) {
+            run.deadlineTimer = TIMER.schedule(
+                    () -> run.cancel(RunCancelledException.Reason.DEADLINE, "Run " + runId + " exceeded its deadline of " + timeout),
+                    timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return run;
+    }
+
+    void close() {
+        if (deadlineTimer != null) deadlineTimer.cancel(false);
+        ACTIVE.remove(runId, this);
+    }
+
+    public static Optional<RunContext> of(String runId) {
+        return runId == null ? Optional.empty() : Optional.ofNullable(ACTIVE.get(runId));
+    }
+
+    public static Optional<RunContext> of(AgentState state) {
+        return of(state.getRunId());
+    }
+
+    // The run whose node is executing on this thread, if the framework started it
+    public static Optional<RunContext> current() {
+        return CURRENT.isBound() ? Optional.of(CURRENT.get()) : Optional.empty();
+    }
+
+    // Cancels a run that is executing in this process; false if there is none with that id
+    public static boolean cancel(String runId) {
+        return of(runId).map(run -> run.cancel(RunCancelledException.Reason.CANCELLED, "Run " + runId + " was cancelled"))
+                .orElse(false);
+    }
+
+    // Cancels the run now if it is executing, otherwise as soon as it opens; forget(runId) once it is over
+    static void cancelWhenOpen(String runId) {
+        CANCEL_ON_OPEN.add(runId);
+        cancel(runId);
+    }
+
+    static void forget(String runId) {
+        CANCEL_ON_OPEN.remove(runId);
+    }
+
+    public String runId() {
+        return runId;
+    }
+
+    // Where to record spans of this run; null when the run is not traced
+    public RunTrace trace() {
+        return trace;
+    }
+
+    void trace(RunTrace trace) {
+        this.trace = trace;
+    }
+
+    // Time left before the deadline; null when the run has none
+    public Duration remaining() {
+        if (deadlineNanos == Long.MAX_VALUE) return null;
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isCancelled() {
+        return cancelled.isDone();
+    }
+
+    // Why the run was stopped; null while it is still live
+    public RunCancelledException cancellation() {
+        return cancelled.getNow(null);
+    }
+
+    // Completes when the run is cancelled. A copy: completing or cancelling it affects nobody else.
+    public CompletableFuture<RunCancelledException> whenCancelled() {
+        return cancelled.copy();
+    }
+
+    public void throwIfCancelled() {
+        RunCancelledException cause = cancelled.getNow(null);
+        if (cause != null) throw cause;
+    }
+
+    // Called before every graph step
+    public void beforeStep(String node) {
+        throwIfCancelled();
+        if (System.nanoTime() - deadlineNanos >= 0) {
+            cancel(RunCancelledException.Reason.DEADLINE, "Run " + runId + " passed its deadline before " + node);
+            throwIfCancelled();
+        }
+        if (maxIterations > 0 && iterations.incrementAndGet() > maxIterations) {
+            cancel(RunCancelledException.Reason.ITERATION_LIMIT,
+                    "Run " + runId + " exceeded " + maxIterations + " iterations at " + node);
+            throwIfCancelled();
+        }
+    }
+
+    public boolean cancel(RunCancelledException.Reason reason, String message) {
+        if (!cancelled.complete(new RunCancelledException(runId, reason, message))) {
+            return false;
+        }
+        for (Runnable hook : cancelHooks) {
+            hook.run();
+        }
+        return true;
+    }
+
+    /**
+     * Runs {@code hook} when the run is cancelled (at once if it already is).
+     * Returns the handle that unregisters it; call it when the guarded work is over.
+     */
+    public Runnable onCancel(Runnable hook) {
+        cancelHooks.add(hook);
+        if (isCancelled() && cancelHooks.remove(hook)) {
+            hook.run();
+        }
+        return () -> cancelHooks.remove(hook);
+    }
+
+    /**
+     * Runs blocking node code on {@code executor} with this run bound as {@link #current()}.
+     * Cancelling the run interrupts the worker thread, which unblocks I/O such as model calls.
+     * The worker logs with the run's MDC, so parallel branches carry the same flow and correlation ids.
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> work, Executor executor) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            Thread worker = Thread.currentThread();
+            Runnable unregister = onCancel(worker::interrupt);
+            Map<String, String> workerMdc = MDC.getCopyOfContextMap();
+            if (mdc != null) MDC.setContextMap(mdc);
+            try {
+                result.complete(ScopedValue.where(CURRENT, this).call(work::get));
+            } catch (Throwable t) {
+                result.completeExceptionally(isCancelled() ? cancellation() : t);
+            } finally {
+                unregister.run();
+                if (workerMdc == null) MDC.clear();
+                else MDC.setContextMap(workerMdc);
+                // Do not leak an interrupt into whatever the (possibly pooled or calling) thread does next
+                Thread.interrupted();
+            }
+        });
+        return result;
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name("run-deadline-timer").daemon().factory());
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -0,0 +1,21 @@
+package engine;
+
+import java.time.Duration;
+
+/**
+ * Bounds applied to every run unless the caller passes its own timeout.
+ *
+ * @param runTimeout    wall-clock budget of a whole run; null for none
+ * @param nodeTimeout   budget of a single node invocation; null for none
+ * @param maxIterations node invocations allowed per run (loops count every pass); 0 for no cap
+ */
+public record RunLimits(Duration runTimeout, Duration nodeTimeout, int maxIterations) {
+
+    public RunLimits {
+        if (maxIterations < 0) throw new IllegalArgumentException("maxIterations must be >= 0");
+    }
+
+    public static RunLimits none() {
+        return new RunLimits(null, null, 0);
+    }
+}
@@ -1,18 +1,41 @@
 package engine;
 
+import admission.AdmissionController;
+import admission.Bulkhead;
+import checkpoint.CheckpointStore;
 import dsl.FlowBuilder;
+import dsl.FlowSettings;
 import dsl.WorkflowDefinition;
+import dsl.WorkflowTopology;
+import job.JobRecord;
+import job.JobScheduler;
 import lombok.extern.log4j.Log4j2;
+import observability.NodeMetrics;
+import observability.RunTrace;
+import org.bsc.langgraph4j.CompileConfig;
 import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.GraphInput;
+import org.bsc.langgraph4j.NodeOutput;
+import org.bsc.langgraph4j.RunnableConfig;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
 import state.AgentState;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 3. RUNTIME ENGINE & REGISTRY
@@ -20,74 +43,391 @@ import java.util.stream.Stream;
  */
 @Log4j2
 @Component
-public class WorkflowEngine implements ApplicationContextAware {
+public class WorkflowEngine implements ApplicationContextAware, SmartInitializingSingleton {
     private ApplicationContext context;
-    private final Map<String, RegisteredWorkflow> registry = new ConcurrentHashMap<>();
+    // Every registered version; runs keep a reference to theirs, so a swap never changes a run mid-flight
+    private final Map<WorkflowKey, RegisteredWorkflow> versions = new ConcurrentHashMap<>();
+    // The version new runs of each workflow start on
+    private final Map<String, RegisteredWorkflow> latest = new ConcurrentHashMap<>();
+    private final FlowSettings settings;
+    // Optional: when present every step is checkpointed and runs can be resumed
+    private final CheckpointStore checkpointStore;
+    private final ExecutionEngine executionEngine;
+    private final boolean lazyCompile;
+    // Optional: bounds concurrent runs per workflow
+    private final AdmissionController admission;
+    // Optional: background execution of submitted runs
+    private JobScheduler jobScheduler;
 
-    // Wrapper to keep track of version metadata along with the graph
-    private record RegisteredWorkflow(CompiledGraph<?> graph, String version) {}
+    private record WorkflowKey(String workflowId, String version) {}
+
+    // Exactly one of graph (langgraph4j) and executor (native) is set
+    private record CompiledWorkflow(CompiledGraph<?> graph, GraphExecutor<?> executor) {}
+
+    // Wrapper to keep track of version metadata along with the graph, compiled at most once
+    private final class RegisteredWorkflow {
+        final WorkflowDefinition<?> definition;
+        final String workflowId;
+        final String version;
+        private volatile CompiledWorkflow compiled;
+
+        RegisteredWorkflow(WorkflowDefinition<?> definition) {
+            this.definition = definition;
+            this.workflowId = definition.getWorkflowId();
+            this.version = definition.getVersion();
+        }
+
+        CompiledWorkflow compiled() {
+            CompiledWorkflow result = compiled;
+            if (result == null) {
+                synchronized (this) {
+                    result = compiled;
+                    if (result == null) {
+                        compiled = result = compile(definition);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    public WorkflowEngine() {
+        this(FlowSettings.defaults(), null, ExecutionEngine.AUTO, false, null);
+    }
+
+    public WorkflowEngine(FlowSettings settings, CheckpointStore checkpointStore,
+                          ExecutionEngine executionEngine, boolean lazyCompile,
+                          AdmissionController admission) {
+        if (executionEngine == ExecutionEngine.NATIVE && checkpointStore != null) {
+            throw new IllegalStateException("The native engine does not support checkpointing; use AUTO or LANGGRAPH");
+        }
+        this.settings = settings;
+        this.checkpointStore = checkpointStore;
+        this.executionEngine = executionEngine;
+        this.lazyCompile = lazyCompile;
+        this.admission = admission;
+    }
 
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) {
         this.context = applicationContext;
     }
 
-    // Called on Startup via @EventListener(ApplicationReadyEvent.class)
-    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void setJobScheduler(JobScheduler jobScheduler) {
+        this.jobScheduler = jobScheduler;
+    }
+
+    // As a bean, workflows are registered once every singleton (definitions, nodes) exists,
+    // ahead of ApplicationReadyEvent listeners such as JobScheduler#start
+    @Override
+    public void afterSingletonsInstantiated() {
+        registerWorkflows();
+    }
+
+    // Engines created outside a Spring context call this themselves
+    @SuppressWarnings("rawtypes")
     public void registerWorkflows() {
         Map<String, WorkflowDefinition> beans = context.getBeansOfType(WorkflowDefinition.class);
+        List<RegisteredWorkflow> workflows = beans.values().stream()
+                .map(def -> new RegisteredWorkflow((WorkflowDefinition<?>) def))
+                .toList();
 
-        beans.forEach((beanName, def) -> {
-            String wfId = def.getWorkflowId();
-            String version = def.getVersion();
+        if (!lazyCompile) {
+            // Definitions are independent of each other, so they compile across all cores
+            workflows.parallelStream().forEach(RegisteredWorkflow::compiled);
+        }
+        // Installed in bean order so the latest version of each workflow is deterministic
+        workflows.forEach(this::install);
+    }
 
-            //log.info("Compiling Workflow: {} (Version: {})", wfId, version);
+    /**
+     * Hot-swaps a workflow definition without a restart. The definition is compiled first, so a
+     * definition that fails to build never replaces a working one; then new runs of its workflow
+     * switch to it in one step. Runs already in flight finish on the version they started on,
+     * and runs started on older versions stay resumable until those are retired.
+     */
+    public void reload(WorkflowDefinition<?> definition) {
+        RegisteredWorkflow workflow = new RegisteredWorkflow(definition);
+        workflow.compiled();
+        install(workflow);
+    }
 
-            FlowBuilder builder = new FlowBuilder(def.getStateType(), context);
-            def.define(builder);
+    // Drops a version that is no longer the latest; its in-flight runs keep their reference
+    public boolean retire(String workflowId, String version) {
+        RegisteredWorkflow current = latest.get(workflowId);
+        if (current != null && current.version.equals(version)) {
+            throw new IllegalStateException(workflowId + " " + version + " is the active version");
+        }
+        return versions.remove(new WorkflowKey(workflowId, version)) != null;
+    }
 
-            // Register using the returned ID, not the bean name
-            registry.put(wfId, new RegisteredWorkflow(builder.build(), version));
-        });
+    private void install(RegisteredWorkflow workflow) {
+        //log.info("Registering Workflow: {} (Version: {})", workflow.workflowId, workflow.version);
+        versions.put(new WorkflowKey(workflow.workflowId, workflow.version), workflow);
+        latest.put(workflow.workflowId, workflow);
     }
 
-    @SuppressWarnings("unchecked")
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private CompiledWorkflow compile(WorkflowDefinition def) {
+        //log.info("Compiling Workflow: {} (Version: {})", def.getWorkflowId(), def.getVersion());
+        FlowBuilder builder = new FlowBuilder(def.stateFactory(), context, settings, def.getWorkflowId(), def.getVersion());
+        def.define(builder);
+        checkRecordedTopology(def, builder.topology());
+        return useNativeEngine()
+                ? new CompiledWorkflow(null, builder.buildNative())
+                : new CompiledWorkflow(builder.build(compileConfig()), null);
+    }
+
+    // AOT-processed applications carry the graph each definition built at build time, and the
+    // reflection hints of its nodes; a graph that came out differently would fail on the first
+    // node without hints, so it is refused here instead
+    private void checkRecordedTopology(WorkflowDefinition<?> def, List<String> edges) {
+        context.getBeanProvider(WorkflowTopology.class).stream()
+                .filter(recorded -> recorded.workflowId().equals(def.getWorkflowId())
+                        && recorded.version().equals(def.getVersion()))
+                .filter(recorded -> !recorded.edges().equals(edges))
+                .findFirst()
+                .ifPresent(recorded -> {
+                    throw new IllegalStateException("Workflow " + def.getWorkflowId() + " " + def.getVersion()
+                            + " built a different graph than at build time: " + edges + " instead of " + recorded.edges());
+                });
+    }
+
+    /**
+     * Runs the latest version of a workflow. Every run gets a fresh run id, whatever the
+     * state's correlation id; the id is set on {@code initialState} ({@link AgentState#getRunId()})
+     * before the first step, for {@link #resume(String)} or {@link RunContext#cancel(String)}.
+     */
     public <S extends AgentState> S run(String workflowId, S initialState) {
-        RegisteredWorkflow workflow = registry.get(workflowId);
+        RegisteredWorkflow workflow = latest.get(workflowId);
+        if (workflow == null) throw new IllegalArgumentException("Unknown workflow ID: " + workflowId);
+        return start(workflow, initialState, UUID.randomUUID().toString(), settings.limits().runTimeout());
+    }
+
+    /**
+     * Runs under a run id chosen by the caller, such as a job's, instead of a fresh one. The id
+     * must not belong to an earlier run: its checkpoints would be continued rather than replaced.
+     * Throws {@link IllegalStateException} if a run with that id is executing in this process.
+     */
+    public <S extends AgentState> S runAs(String runId, String workflowId, S initialState) {
+        RegisteredWorkflow workflow = latest.get(workflowId);
+        if (workflow == null) throw new IllegalArgumentException("Unknown workflow ID: " + workflowId);
+        return start(workflow, initialState, runId, settings.limits().runTimeout());
+    }
+
+    /**
+     * Runs with its own wall-clock budget instead of the configured default. When it runs out the
+     * in-flight node is abandoned, its thread interrupted, and {@link RunCancelledException} thrown.
+     */
+    public <S extends AgentState> S run(String workflowId, S initialState, Duration timeout) {
+        RegisteredWorkflow workflow = latest.get(workflowId);
+        if (workflow == null) throw new IllegalArgumentException("Unknown workflow ID: " + workflowId);
+        return start(workflow, initialState, UUID.randomUUID().toString(), timeout);
+    }
+
+    // Runs a specific registered version rather than the latest one
+    public <S extends AgentState> S run(String workflowId, String version, S initialState) {
+        RegisteredWorkflow workflow = versions.get(new WorkflowKey(workflowId, version));
+        if (workflow == null) throw new IllegalArgumentException("Unknown workflow: " + workflowId + " " + version);
+        return start(workflow, initialState, UUID.randomUUID().toString(), settings.limits().runTimeout());
+    }
+
+    /**
+     * Queues a run for background execution and returns its run id (the state's correlation id
+     * when set; it must not have been submitted before). Poll {@link #job(String)} for its status
+     * and result; both survive restarts. State values must be JSON-serializable to be stored.
+     */
+    public String submit(String workflowId, AgentState initialState) {
+        if (jobScheduler == null) throw new IllegalStateException("Background runs are disabled (agent.jobs.enabled)");
+        if (!latest.containsKey(workflowId)) throw new IllegalArgumentException("Unknown workflow ID: " + workflowId);
+
+        String runId = initialState.getCorrelationId() != null ? initialState.getCorrelationId() : UUID.randomUUID().toString();
+        return jobScheduler.submit(runId, workflowId, new HashMap<>(initialState.data()));
+    }
+
+    public Optional<JobRecord> job(String runId) {
+        if (jobScheduler == null) throw new IllegalStateException("Background runs are disabled (agent.jobs.enabled)");
+        return jobScheduler.find(runId);
+    }
+
+    // Whether resume(runId) can continue this run from a checkpoint
+    public boolean canResume(String runId) {
+        return checkpointStore != null && checkpointStore.findRun(runId).isPresent();
+    }
+
+    // Builds the state type of a workflow from plain data, e.g. the stored input of a job
+    public AgentState newState(String workflowId, Map<String, Object> data) {
+        RegisteredWorkflow workflow = latest.get(workflowId);
         if (workflow == null) throw new IllegalArgumentException("Unknown workflow ID: " + workflowId);
+        return (AgentState) workflow.definition.stateFactory().apply(data);
+    }
+
+    /**
+     * Runs many cases through one workflow, at most {@code parallelism} at a time, and streams
+     * each result back as soon as its case finishes (completion order, see
+     * {@link BatchResult#index()}). A failing case is reported in its result and does not stop
+     * the batch. Cases are read from {@code cases} lazily, so a cursor over millions of rows is fine.
+     * <p>
+     * The whole batch runs on the version that is latest when the call is made. Its parallelism
+     * takes the place of the admission queue; model calls still pass the LLM rate limiter.
+     * Close the stream to abandon the remaining cases; those in progress are cancelled.
+     * </p>
+     */
+    public <S extends AgentState> Stream<BatchResult<S>> runBatch(String workflowId, Iterable<S> cases, int parallelism) {
+        RegisteredWorkflow workflow = latest.get(workflowId);
+        if (workflow == null) throw new IllegalArgumentException("Unknown workflow ID: " + workflowId);
+
+        Duration timeout = settings.limits().runTimeout();
+        BatchRunner<S> runner = new BatchRunner<>(cases.iterator(),
+                (input, runId) -> startAdmitted(workflow, input, runId, timeout), parallelism);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(runner, Spliterator.NONNULL), false)
+                .onClose(runner::close);
+    }
+
+    public <S extends AgentState> Stream<BatchResult<S>> runBatch(String workflowId, Stream<S> cases, int parallelism) {
+        return runBatch(workflowId, (Iterable<S>) cases::iterator, parallelism).onClose(cases::close);
+    }
 
-        CompiledGraph<S> graph = (CompiledGraph<S>) workflow.graph();
+    // Throws admission.OverloadException when the workflow is saturated
+    private <S extends AgentState> S start(RegisteredWorkflow workflow, S initialState, String runId, Duration timeout) {
+        if (admission == null) {
+            return startAdmitted(workflow, initialState, runId, timeout);
+        }
+        try (Bulkhead.Permit ignored = admission.acquire(workflow.workflowId)) {
+            return startAdmitted(workflow, initialState, runId, timeout);
+        }
+    }
 
+    // The run id is the checkpoint thread id; the correlation id is only a header, since a client
+    // retrying a failed run with it must not continue that run's checkpoints
+    private <S extends AgentState> S startAdmitted(RegisteredWorkflow workflow, S initialState, String runId,
+                                                   Duration timeout) {
         // Enrich state with metadata
-        initialState.setWorkflowId(workflowId);
-        initialState.setWorkflowVersion(workflow.version());
+        initialState.setWorkflowId(workflow.workflowId);
+        initialState.setWorkflowVersion(workflow.version);
+        initialState.setRunId(runId);
+
+        if (checkpointStore != null) {
+            checkpointStore.recordRun(runId, workflow.workflowId, workflow.version);
+        }
+
+        Map<String, Object> inputs = new HashMap<>(initialState.data());
+        inputs.put(AgentState.RUN_ID, runId);
+        if (timeout != null) {
+            inputs.put(AgentState.DEADLINE, Instant.now().plus(timeout).toEpochMilli());
+        }
+        return execute(workflow.compiled(), initialState, inputs, runId, timeout);
+    }
+
+    /**
+     * Continues a run from its last completed node. Requires checkpointing to be enabled;
+     * the version the run was started on must still be registered. Throws
+     * {@link IllegalStateException} while the run is still executing in this process. The resumed part gets a
+     * fresh default timeout; the deadline stored in the state is the original one.
+     */
+    @SuppressWarnings("unchecked")
+    public <S extends AgentState> S resume(String runId) {
+        if (checkpointStore == null) throw new IllegalStateException("Checkpointing is disabled (agent.checkpoint.enabled)");
 
+        CheckpointStore.RunInfo run = checkpointStore.findRun(runId)
+                .orElseThrow(() -> new IllegalArgumentException("No resumable run with ID: " + runId));
+        RegisteredWorkflow workflow = versions.get(new WorkflowKey(run.workflowId(), run.workflowVersion()));
+        if (workflow == null) {
+            throw new IllegalStateException("Run " + runId + " was started on " + run.workflowId() + " "
+                    + run.workflowVersion() + ", which is no longer registered");
+        }
+        CompiledWorkflow compiled = workflow.compiled();
+        if (compiled.graph() == null) throw new IllegalStateException(run.workflowId() + " runs on the native engine and is not resumable");
+
+        AgentState headers = new AgentState() {};
+        headers.setWorkflowId(run.workflowId());
+        headers.setWorkflowVersion(run.workflowVersion());
+        headers.setCorrelationId(runId);
+        headers.setRunId(runId);
+        if (admission == null) {
+            return (S) execute(compiled, headers, null, runId, settings.limits().runTimeout());
+        }
+        try (Bulkhead.Permit ignored = admission.acquire(run.workflowId())) {
+            return (S) execute(compiled, headers, null, runId, settings.limits().runTimeout());
+        }
+    }
+
+    // inputs == null resumes the run from its last checkpoint
+    @SuppressWarnings("unchecked")
+    private <S extends AgentState> S execute(CompiledWorkflow workflow, AgentState headers, Map<String, Object> inputs,
+                                             String runId, Duration timeout) {
         // observability setup
-        MDC.put("flow_id", workflowId);
-        MDC.put("flow_version", workflow.version());
-        MDC.put("correlation_id", initialState.getCorrelationId());
+        MDC.put("flow_id", headers.getWorkflowId());
+        MDC.put("flow_version", headers.getWorkflowVersion());
+        MDC.put("correlation_id", headers.getCorrelationId());
+        MDC.put("run_id", runId);
 
+        NodeMetrics.Meters meters = settings.metrics().workflow(headers.getWorkflowId(), headers.getWorkflowVersion());
+        long start = meters.start();
+        RunContext run = null;
+        RunTrace trace = null;
+        Throwable failure = null;
         try {
+            // Inside the try so that a run id already executing still clears the MDC
+            run = RunContext.open(runId, timeout, settings.limits().maxIterations());
+            trace = settings.tracer().begin(runId, headers.getWorkflowId(), headers.getWorkflowVersion());
+            run.trace(trace);
             //log.info("Starting Workflow Execution");
-            java.util.stream.Stream<Map<String, Object>> stream = (Stream<Map<String, Object>>) graph.stream(initialState.data());
-            Map<String, Object> finalResult = null;
-
-            for (java.util.Iterator<Map<String, Object>> it = stream.iterator(); it.hasNext(); ) {
-                finalResult = it.next();
-            }
+            S finalState = workflow.executor() != null
+                    ? ((GraphExecutor<S>) workflow.executor()).run(inputs)
+                    : runGraph((CompiledGraph<S>) workflow.graph(), inputs, run);
 
-            // Update the typed state object with the final data map
-            if (finalResult != null) {
-                initialState.data().putAll(finalResult);
+            // Graph steps produce fresh state objects; carry the typed headers over to the result
+            if (finalState == null) {
+                return (S) headers;
             }
-
-            return initialState;
-        } catch (Exception e) {
+            finalState.copyHeadersFrom(headers);
+            return finalState;
+        } catch (RuntimeException e) {
             //log.error("Error executing workflow", e);
-            throw e;
+            // Whatever the graph runtime surfaced (cancelled futures, wrapped errors), report why the run stopped
+            RuntimeException error = run != null && run.isCancelled() ? run.cancellation() : e;
+            failure = error;
+            throw error;
         } finally {
             //log.info("Finished Workflow Execution");
+            if (run != null) run.close();
+            meters.stop(start, failure);
+            if (trace != null) settings.tracer().finish(trace, failure);
             MDC.clear();
         }
     }
+
+    private <S extends AgentState> S runGraph(CompiledGraph<S> graph, Map<String, Object> inputs, RunContext run) {
+        RunnableConfig config = RunnableConfig.builder().threadId(run.runId()).build();
+        GraphInput input = inputs == null ? GraphInput.resume() : GraphInput.args(inputs);
+        S finalState = null;
+
+        for (NodeOutput<S> output : graph.stream(input, config)) {
+            run.throwIfCancelled();
+            finalState = output.state();
+        }
+
+        // Finished runs have nothing left to resume
+        if (checkpointStore != null) {
+            checkpointStore.clear(config);
+        }
+        return finalState;
+    }
+
+    private boolean useNativeEngine() {
+        return switch (executionEngine) {
+            case NATIVE -> true;
+            case LANGGRAPH -> false;
+            case AUTO -> checkpointStore == null;
+        };
+    }
+
+    private CompileConfig compileConfig() {
+        CompileConfig.Builder builder = CompileConfig.builder();
+        if (checkpointStore != null) {
+            builder.checkpointSaver(checkpointStore);
+        }
+        return builder.build();
+    }
 }
@@ -0,0 +1,181 @@
+package job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import state.StateSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * {@link JobStore} keeping one file per job in a directory, encoded by a {@link StateSerializer}.
+ * <p>
+ * Every write goes to a temporary file that is atomically moved over the old one, so a crash
+ * leaves either the previous or the new version of a job, never a torn one. All jobs are
+ * loaded into memory at startup; reads never touch the disk. Job files of the earlier JSON
+ * format ({@code *.json}) are read too and rewritten in the current one.
+ * </p>
+ */
+public class FileJobStore implements JobStore {
+    private static final String SUFFIX = ".job";
+    private static final String LEGACY_SUFFIX = ".json";
+
+    private final Path directory;
+    private final StateSerializer serializer;
+    private final Map<String, JobRecord> jobs = new ConcurrentHashMap<>();
+
+    public FileJobStore(Path directory, StateSerializer serializer) {
+        this.directory = directory;
+        this.serializer = serializer;
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.toList();
+            }
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(SUFFIX)) {
+                    load(file, serializer.read(Files.readAllBytes(file)));
+                }
+            }
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(LEGACY_SUFFIX)) {
+                    migrate(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open job store at " + directory, e);
+        }
+    }
+
+    @Override
+    public void save(JobRecord job) {
+        write(job);
+        jobs.put(job.runId(), job);
+    }
+
+    @Override
+    public boolean insert(JobRecord job) {
+        // Claimed in memory first, so of two concurrent inserts only one writes a file
+        if (jobs.putIfAbsent(job.runId(), job) != null) return false;
+        try {
+            write(job);
+        } catch (RuntimeException e) {
+            jobs.remove(job.runId(), job);
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean replace(JobRecord expected, JobRecord job) {
+        // Swapped in memory first, so of two concurrent replaces only one writes a file
+        if (!jobs.replace(job.runId(), expected, job)) return false;
+        try {
+            write(job);
+        } catch (RuntimeException e) {
+            jobs.replace(job.runId(), job, expected);
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public Optional<JobRecord> find(String runId) {
+        return Optional.ofNullable(jobs.get(runId));
+    }
+
+    @Override
+    public Collection<JobRecord> unfinished() {
+        return jobs.values().stream().filter(job -> !job.status().isFinished()).toList();
+    }
+
+    @Override
+    public int purgeFinishedBefore(Instant cutoff) {
+        int removed = 0;
+        for (JobRecord job : jobs.values()) {
+            if (job.status().isFinished() && job.updatedAt().isBefore(cutoff)) {
+                try {
+                    Files.deleteIfExists(file(job.runId()));
+                } catch (IOException e) {
+                    continue; // retried on the next purge
+                }
+                jobs.remove(job.runId(), job);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    // A job file left by the JSON store; a .job file of the same run is newer and wins
+    @SuppressWarnings("unchecked")
+    private void migrate(Path file) throws IOException {
+        Map<String, Object> record = new ObjectMapper().readValue(Files.readAllBytes(file), Map.class);
+        JobRecord job = load(file, record);
+        if (job != null) {
+            save(job);
+        }
+        Files.delete(file);
+    }
+
+    // Adds the job unless one of the same run is already loaded; returns it when added
+    @SuppressWarnings("unchecked")
+    private JobRecord load(Path file, Map<String, Object> record) {
+        try {
+            JobRecord job = new JobRecord(
+                    (String) record.get("run"),
+                    (String) record.get("workflow"),
+                    JobStatus.valueOf((String) record.get("status")),
+                    Instant.ofEpochMilli(((Number) record.get("submitted")).longValue()),
+                    Instant.ofEpochMilli(((Number) record.get("updated")).longValue()),
+                    (Map<String, Object>) record.get("input"),
+                    (Map<String, Object>) record.get("result"),
+                    (String) record.get("error"));
+            return jobs.putIfAbsent(job.runId(), job) == null ? job : null;
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Corrupt job file " + file, e);
+        }
+    }
+
+    private static Map<String, Object> toRecord(JobRecord job) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("run", job.runId());
+        record.put("workflow", job.workflowId());
+        record.put("status", job.status().name());
+        record.put("submitted", job.submittedAt().toEpochMilli());
+        record.put("updated", job.updatedAt().toEpochMilli());
+        record.put("input", job.input());
+        record.put("result", job.result());
+        record.put("error", job.error());
+        return record;
+    }
+
+    private void write(JobRecord job) {
+        Path target = file(job.runId());
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.write(tmp, serializer.write(toRecord(job)));
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not persist job " + job.runId(), e);
+        }
+    }
+
+    // Run ids come from clients (correlation ids); keep them from escaping the directory
+    private Path file(String runId) {
+        if (runId.isEmpty() || runId.contains("/") || runId.contains("\\") || runId.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid run id for a job: " + runId);
+        }
+        return directory.resolve(runId + SUFFIX);
+    }
+}
@@ -0,0 +1,38 @@
+package job;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A submitted run as kept by the {@link JobStore}.
+ *
+ * @param input  data of the initial state
+ * @param result data of the final state once {@link JobStatus#SUCCEEDED}
+ * @param error  failure message once {@link JobStatus#FAILED}
+ */
+public record JobRecord(String runId,
+                        String workflowId,
+                        JobStatus status,
+                        Instant submittedAt,
+                        Instant updatedAt,
+                        Map<String, Object> input,
+                        Map<String, Object> result,
+                        String error) {
+
+    public static JobRecord queued(String runId, String workflowId, Map<String, Object> input) {
+        Instant now = Instant.now();
+        return new JobRecord(runId, workflowId, JobStatus.QUEUED, now, now, input, null, null);
+    }
+
+    public JobRecord running() {
+        return new JobRecord(runId, workflowId, JobStatus.RUNNING, submittedAt, Instant.now(), input, null, null);
+    }
+
+    public JobRecord succeeded(Map<String, Object> result) {
+        return new JobRecord(runId, workflowId, JobStatus.SUCCEEDED, submittedAt, Instant.now(), input, result, null);
+    }
+
+    public JobRecord failed(String error) {
+        return new JobRecord(runId, workflowId, JobStatus.FAILED, submittedAt, Instant.now(), input, null, error);
+    }
+}
@@ -0,0 +1,148 @@
+package job;
+
+import admission.OverloadException;
+import engine.WorkflowEngine;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import state.AgentState;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs submitted workflows in the background on a fixed number of workers.
+ * <p>
+ * Submitting only writes the job to the {@link JobStore} and queues its id, so it returns at
+ * once whatever the run length. Jobs queued or running when the process stopped are picked up
+ * again on {@link #start()}: resumed from their last checkpoint when checkpointing is on,
+ * restarted otherwise. A job rejected by admission control goes back into the queue after the
+ * suggested Retry-After. A run id is in the queue at most once, and a worker only runs a job
+ * after moving it to RUNNING with a conditional {@link JobStore#replace}, so no job runs twice
+ * at the same time.
+ * </p>
+ */
+public class JobScheduler implements AutoCloseable {
+    private final WorkflowEngine engine;
+    private final JobStore store;
+    private final int workers;
+    private final Duration retention;
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    // Run ids currently in the queue
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("job-scheduler").daemon().factory());
+    private boolean started;
+
+    public JobScheduler(WorkflowEngine engine, JobStore store, int workers, Duration retention) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be >= 1");
+        this.engine = engine;
+        this.store = store;
+        this.workers = workers;
+        this.retention = retention;
+    }
+
+    // Workflows are registered once all singletons exist, before the application is ready
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+
+        store.unfinished().stream()
+                .sorted(Comparator.comparing(JobRecord::submittedAt))
+                .forEach(job -> enqueue(job.runId()));
+        for (int i = 0; i < workers; i++) {
+            pool.execute(this::work);
+        }
+        timer.scheduleWithFixedDelay(() -> store.purgeFinishedBefore(Instant.now().minus(retention)),
+                0, 1, TimeUnit.HOURS);
+    }
+
+    public String submit(String runId, String workflowId, Map<String, Object> input) {
+        if (!store.insert(JobRecord.queued(runId, workflowId, input))) {
+            throw new IllegalArgumentException("A job with run ID " + runId + " already exists");
+        }
+        enqueue(runId);
+        return runId;
+    }
+
+    // Jobs submitted before start() are queued already; start() must not queue them again
+    private void enqueue(String runId) {
+        if (queued.add(runId)) queue.add(runId);
+    }
+
+    public Optional<JobRecord> find(String runId) {
+        return store.find(runId);
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            String runId;
+            try {
+                runId = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            queued.remove(runId);
+            try {
+                process(runId);
+            } catch (Throwable e) {
+                // The store could not record the outcome; the job keeps its last persisted
+                // status and is picked up again on the next start. The worker carries on.
+            }
+        }
+    }
+
+    private void process(String runId) {
+        JobRecord job = store.find(runId).orElse(null);
+        if (job == null || job.status().isFinished()) return;
+
+        boolean resume = job.status() == JobStatus.RUNNING && engine.canResume(runId);
+        JobRecord claimed = job.running();
+        if (!store.replace(job, claimed)) {
+            return; // another worker took it since it was read
+        }
+        try {
+            AgentState result;
+            if (resume) {
+                result = engine.resume(runId);
+            } else {
+                AgentState initial = engine.newState(job.workflowId(), job.input());
+                initial.setCorrelationId(runId);
+                result = engine.runAs(runId, job.workflowId(), initial);
+            }
+            store.save(claimed.succeeded(result.data()));
+        } catch (OverloadException e) {
+            // Not the job's fault: back into the queue once there is room again
+            store.save(job);
+            timer.schedule(() -> enqueue(runId), e.getRetryAfter().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Throwable e) {
+            // Errors too: a node's StackOverflowError must not leave the job RUNNING forever
+            store.save(claimed.failed(e.getClass().getSimpleName() + ": " + e.getMessage()));
+        }
+    }
+}
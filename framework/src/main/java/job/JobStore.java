@@ -0,0 +1,27 @@
+package job;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Durable status and results of runs submitted through {@link JobScheduler}.
+ */
+public interface JobStore {
+
+    void save(JobRecord job);
+
+    // Saves a new job unless one with the same run id exists; returns whether it was saved
+    boolean insert(JobRecord job);
+
+    // Saves job only while the stored record of its run is still expected; returns whether it was saved
+    boolean replace(JobRecord expected, JobRecord job);
+
+    Optional<JobRecord> find(String runId);
+
+    // Jobs that were queued or running when the process stopped
+    Collection<JobRecord> unfinished();
+
+    // Drops finished jobs last updated before the cutoff; returns how many were removed
+    int purgeFinishedBefore(Instant cutoff);
+}
@@ -0,0 +1,48 @@
+package llm;
+
+import java.util.Arrays;
+
+/**
+ * Percentiles over the most recent call latencies.
+ * <p>
+ * Keeps a fixed ring of samples; the percentile is recomputed (copy and sort) at most once per
+ * {@code RECOMPUTE_EVERY} new samples, so reading it on every call stays cheap.
+ * </p>
+ */
+class LatencyTracker {
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final long[] samples;
+    private final double percentile;
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private volatile long cachedNanos = -1;
+
+    LatencyTracker(int window, double percentile) {
+        if (percentile <= 0 || percentile >= 1) throw new IllegalArgumentException("percentile must be in (0, 1)");
+        this.samples = new long[window];
+        this.percentile = percentile;
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+        if (++sinceRecompute >= RECOMPUTE_EVERY) {
+            sinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            cachedNanos = sorted[(int) Math.min(count - 1, Math.ceil(percentile * count) - 1)];
+        }
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    // -1 until enough samples were seen
+    long percentileNanos() {
+        return cachedNanos;
+    }
+}
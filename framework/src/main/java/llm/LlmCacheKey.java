@@ -0,0 +1,23 @@
+package llm;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * Cache identity of an LLM call: the effective system prompt, the normalized user prompt
+ * and a fingerprint of the model options the ChatClient is configured with.
+ */
+public record LlmCacheKey(String system, String user, String modelOptions) {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public static LlmCacheKey of(String system, String user, String modelOptions) {
+        return new LlmCacheKey(normalize(system), normalize(user), modelOptions);
+    }
+
+    // Unicode NFC, trimmed, whitespace runs collapsed to one space. Case is preserved on purpose.
+    static String normalize(String prompt) {
+        if (prompt == null) return "";
+        String composed = Normalizer.normalize(prompt, Normalizer.Form.NFC);
+        return WHITESPACE.matcher(composed.strip()).replaceAll(" ");
+    }
+}
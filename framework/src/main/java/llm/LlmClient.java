@@ -0,0 +1,236 @@
+package llm;
+
+import cache.BoundedCache;
+import cache.SingleFlight;
+import engine.RunCancelledException;
+import engine.RunContext;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import observability.RunTrace;
+import org.springframework.ai.chat.client.ChatClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Entry point for LLM calls made from graph nodes.
+ * <p>
+ * Wraps the application's {@link ChatClient} with a bounded response cache keyed on
+ * {@link LlmCacheKey}. On a cache miss, identical calls already in flight are coalesced so
+ * only one of them reaches the model. Nodes listed as uncached, or requests built with
+ * {@link LlmRequest#noCache()}, never share a response and always go to the model.
+ * Calls that do reach the model pass through the optional {@link LlmRateLimiter}; blocking calls
+ * may also be hedged by {@link LlmHedger} (streams are not, their first token is already early).
+ * Inside a workflow run, calls stop as soon as the run is cancelled or passes its deadline, and
+ * blocking calls are recorded as spans on the run's trace when it is sampled. A coalesced call
+ * belongs to no run: a cancelled run stops waiting for it, and it completes for the others.
+ * </p>
+ */
+public class LlmClient {
+    // Where coalesced calls run, detached from the run of whichever caller started them
+    private static final Executor SHARED_CALLS = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("llm-shared-call-", 0).factory());
+
+    private final ChatClient chatClient;
+    private final String defaultSystem;
+    private final String modelOptions;
+    private final BoundedCache<LlmCacheKey, String> cache; // null when caching is disabled
+    private final SingleFlight<LlmCacheKey, String> singleFlight; // null when coalescing is disabled
+    private final Set<String> uncachedNodes;
+    private final LlmRateLimiter rateLimiter; // null when calls are not rate limited
+    private final LlmHedger hedger;           // null when hedging is off
+
+    public LlmClient(ChatClient chatClient,
+                     String defaultSystem,
+                     String modelOptions,
+                     BoundedCache<LlmCacheKey, String> cache,
+                     SingleFlight<LlmCacheKey, String> singleFlight,
+                     Set<String> uncachedNodes,
+                     LlmRateLimiter rateLimiter,
+                     LlmHedger hedger,
+                     MeterRegistry meterRegistry) {
+        this.chatClient = chatClient;
+        this.defaultSystem = defaultSystem;
+        this.modelOptions = modelOptions;
+        this.cache = cache;
+        this.singleFlight = singleFlight;
+        this.uncachedNodes = Set.copyOf(uncachedNodes);
+        this.rateLimiter = rateLimiter;
+        this.hedger = hedger;
+
+        if (cache != null) {
+            FunctionCounter.builder("agent.llm.cache.hits", cache, c -> c.stats().hits()).register(meterRegistry);
+            FunctionCounter.builder("agent.llm.cache.misses", cache, c -> c.stats().misses()).register(meterRegistry);
+            FunctionCounter.builder("agent.llm.cache.evictions", cache, c -> c.stats().evictions()).register(meterRegistry);
+            Gauge.builder("agent.llm.cache.size", cache, BoundedCache::size).register(meterRegistry);
+        }
+        if (singleFlight != null) {
+            FunctionCounter.builder("agent.llm.coalesced", singleFlight, SingleFlight::coalescedCount).register(meterRegistry);
+            Gauge.builder("agent.llm.inflight", singleFlight, SingleFlight::inFlightCount).register(meterRegistry);
+        }
+    }
+
+    public String call(LlmRequest request) {
+        RunContext run = RunContext.current().orElse(null);
+        if (run == null) {
+            return callShared(request);
+        }
+        run.throwIfCancelled();
+        RunTrace trace = run.trace();
+        if (trace == null) {
+            return callShared(request);
+        }
+        long start = System.nanoTime();
+        try {
+            String response = callShared(request);
+            trace.record(RunTrace.Kind.LLM, request.node(), start, System.nanoTime(), null, false);
+            return response;
+        } catch (RuntimeException e) {
+            trace.record(RunTrace.Kind.LLM, request.node(), start, System.nanoTime(), e.getClass().getSimpleName(), true);
+            throw e;
+        }
+    }
+
+    private String callShared(LlmRequest request) {
+        if (!isShareable(request)) {
+            return invoke(request);
+        }
+
+        LlmCacheKey key = LlmCacheKey.of(effectiveSystem(request), request.user(), modelOptions);
+        if (cache != null) {
+            String cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        if (singleFlight == null) {
+            return invokeAndCache(key, request);
+        }
+        try {
+            // The shared call runs on a thread of its own, outside the run that happened to start it:
+            // cancelling that run only stops it waiting, the calls of the other runs carry on.
+            // get(), not join(): a cancelled run must be able to stop waiting for a shared call
+            return singleFlight.execute(key,
+                    () -> cache == null ? null : cache.peek(key),
+                    () -> CompletableFuture.supplyAsync(() -> invokeAndCache(key, request), SHARED_CALLS)).get();
+        } catch (ExecutionException e) {
+            // Another run's cancellation is no reason for this one to fail
+            if (e.getCause() instanceof RunCancelledException cancelled && !isOwn(cancelled)) {
+                return callShared(request);
+            }
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            RunContext.current().ifPresent(RunContext::throwIfCancelled);
+            throw new IllegalStateException("Interrupted while waiting for a coalesced LLM call", e);
+        }
+    }
+
+    /**
+     * Streams the response token by token as the model produces it.
+     * A cached response is replayed as a single chunk; a streamed response is cached once complete.
+     */
+    public Flux<String> stream(LlmRequest request) {
+        if (!isShareable(request)) {
+            return streamFromModel(request);
+        }
+
+        LlmCacheKey key = LlmCacheKey.of(effectiveSystem(request), request.user(), modelOptions);
+        if (cache != null) {
+            String cached = cache.get(key);
+            if (cached != null) {
+                return Flux.just(cached);
+            }
+        }
+
+        return Flux.defer(() -> {
+            StringBuilder response = new StringBuilder();
+            return streamFromModel(request)
+                    .doOnNext(response::append)
+                    .doOnComplete(() -> {
+                        if (cache != null) cache.put(key, response.toString());
+                    });
+        });
+    }
+
+    public BoundedCache.Stats cacheStats() {
+        return cache == null ? new BoundedCache.Stats(0, 0, 0, 0) : cache.stats();
+    }
+
+    // Stores before the in-flight entry is released, so no caller falls between the two
+    private String invokeAndCache(LlmCacheKey key, LlmRequest request) {
+        String response = invoke(request);
+        if (cache != null && response != null) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+
+    // Whether this request may reuse another caller's response (cached or in flight)
+    private boolean isShareable(LlmRequest request) {
+        return (cache != null || singleFlight != null)
+                && request.cacheable()
+                && !uncachedNodes.contains(request.node());
+    }
+
+    private static boolean isOwn(RunCancelledException cancelled) {
+        return RunContext.current().map(run -> run.runId().equals(cancelled.getRunId())).orElse(false);
+    }
+
+    private String effectiveSystem(LlmRequest request) {
+        return request.system() != null ? request.system() : defaultSystem;
+    }
+
+    private String invoke(LlmRequest request) {
+        return hedger == null ? invokeOnce(request) : hedger.call(() -> invokeOnce(request));
+    }
+
+    // One model call; each hedged attempt is a separate one and pays its own quota
+    private String invokeOnce(LlmRequest request) {
+        if (rateLimiter == null) {
+            return prompt(request).call().content();
+        }
+        rateLimiter.acquire(promptText(request));
+        String response = prompt(request).call().content();
+        rateLimiter.charge(response);
+        return response;
+    }
+
+    private Flux<String> streamFromModel(LlmRequest request) {
+        Flux<String> tokens = rateLimiter == null
+                ? prompt(request).stream().content()
+                : Flux.defer(() -> {
+                    rateLimiter.acquire(promptText(request));
+                    return prompt(request).stream().content().doOnNext(rateLimiter::charge);
+                });
+        return RunContext.current().map(run -> untilCancelled(tokens, run)).orElse(tokens);
+    }
+
+    // Disposes the upstream stream when the run is cancelled and ends with the cancellation error
+    private static Flux<String> untilCancelled(Flux<String> tokens, RunContext run) {
+        return tokens.takeUntilOther(Mono.fromFuture(run.whenCancelled()))
+                .concatWith(Mono.fromRunnable(run::throwIfCancelled));
+    }
+
+    private String promptText(LlmRequest request) {
+        String system = effectiveSystem(request);
+        return system == null ? request.user() : system + request.user();
+    }
+
+    private ChatClient.ChatClientRequestSpec prompt(LlmRequest request) {
+        ChatClient.ChatClientRequestSpec spec = chatClient.prompt();
+        if (request.system() != null) {
+            spec = spec.system(request.system());
+        }
+        return spec.user(request.user());
+    }
+}
@@ -0,0 +1,145 @@
+package llm;
+
+import engine.RunContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hedged model calls: when a call has not answered within a percentile of recent latency,
+ * a duplicate is sent and whichever answers first wins; the other is cancelled (its thread is
+ * interrupted, which aborts the HTTP exchange).
+ * <p>
+ * Hedges are paid for from a budget that grows by {@code maxExtraRatio} per call, so at most
+ * that fraction of extra calls is ever sent, even when the model is slow across the board.
+ * </p>
+ * <p>
+ * The threshold is learnt from primary attempts only, one sample per call. A primary abandoned
+ * for its hedge counts with the time it had run, a lower bound of its latency.
+ * </p>
+ * Metrics: {@code agent.llm.hedge.calls}, {@code .sent}, {@code .wins}, {@code .skipped}
+ * (budget exhausted) and {@code .delay} (current hedge threshold, ms).
+ */
+public class LlmHedger implements AutoCloseable {
+    // Most hedges that can be saved up during quiet periods
+    private static final double MAX_CREDITS = 10;
+
+    private final LatencyTracker latencies;
+    private final double maxExtraRatio;
+    private final long minDelayNanos;
+    private final int minSamples;
+    private final ExecutorService attempts = Executors.newVirtualThreadPerTaskExecutor();
+    private double credits;
+
+    private final Counter calls;
+    private final Counter sent;
+    private final Counter wins;
+    private final Counter skipped;
+
+    public LlmHedger(double percentile, double maxExtraRatio, Duration minDelay, int minSamples, MeterRegistry meterRegistry) {
+        this.latencies = new LatencyTracker(1024, percentile);
+        this.maxExtraRatio = maxExtraRatio;
+        this.minDelayNanos = minDelay.toNanos();
+        this.minSamples = minSamples;
+        this.calls = Counter.builder("agent.llm.hedge.calls").register(meterRegistry);
+        this.sent = Counter.builder("agent.llm.hedge.sent").register(meterRegistry);
+        this.wins = Counter.builder("agent.llm.hedge.wins").register(meterRegistry);
+        this.skipped = Counter.builder("agent.llm.hedge.skipped").register(meterRegistry);
+        Gauge.builder("agent.llm.hedge.delay", this, h -> TimeUnit.NANOSECONDS.toMillis(Math.max(0, h.hedgeDelayNanos())))
+                .register(meterRegistry);
+    }
+
+    public String call(Supplier<String> call) {
+        calls.increment();
+        earnCredit();
+
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        Future<?> primary = attempts.submit(() -> attempt(call, winner, pending, false));
+        Future<?> hedge = null;
+        try {
+            long delay = hedgeDelayNanos();
+            if (delay < 0) {
+                return winner.get();
+            }
+            try {
+                return winner.get(delay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException slow) {
+                if (!spendCredit()) {
+                    skipped.increment();
+                    return winner.get();
+                }
+                sent.increment();
+                pending.incrementAndGet();
+                hedge = attempts.submit(() -> attempt(call, winner, pending, true));
+                return winner.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("LLM call failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            RunContext.current().ifPresent(RunContext::throwIfCancelled);
+            throw new IllegalStateException("Interrupted while waiting for the LLM", e);
+        } finally {
+            // The loser (or both, if the caller gave up) stops holding a connection and quota
+            primary.cancel(true);
+            if (hedge != null) hedge.cancel(true);
+        }
+    }
+
+    @Override
+    public void close() {
+        attempts.shutdownNow();
+    }
+
+    private void attempt(Supplier<String> call, CompletableFuture<String> winner, AtomicInteger pending, boolean hedged) {
+        long start = System.nanoTime();
+        try {
+            String response = call.get();
+            if (!hedged) latencies.record(System.nanoTime() - start);
+            if (winner.complete(response) && hedged) {
+                wins.increment();
+            }
+        } catch (Throwable t) {
+            if (!hedged && winner.isDone() && !winner.isCompletedExceptionally()) {
+                // Cancelled because the hedge answered first: the primary took at least this long.
+                // Dropping it would keep only the primaries that beat their hedge and drag the
+                // threshold down until nearly every call is hedged.
+                latencies.record(System.nanoTime() - start);
+            }
+            // Only the last attempt standing reports a failure; a sibling may still succeed
+            if (pending.decrementAndGet() == 0) {
+                winner.completeExceptionally(t);
+            }
+        }
+    }
+
+    // -1 while there are too few samples to judge what "slow" means
+    private long hedgeDelayNanos() {
+        long percentile = latencies.percentileNanos();
+        if (percentile < 0 || latencies.count() < minSamples) return -1;
+        return Math.max(minDelayNanos, percentile);
+    }
+
+    private synchronized void earnCredit() {
+        credits = Math.min(MAX_CREDITS, credits + maxExtraRatio);
+    }
+
+    private synchronized boolean spendCredit() {
+        if (credits < 1) return false;
+        credits -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+package llm;
+
+import admission.OverloadException;
+import admission.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+
+/**
+ * Keeps model calls within the provider's requests-per-minute and tokens-per-minute quotas.
+ * <p>
+ * A call reserves one request and its estimated prompt tokens, waiting up to {@code maxWait}
+ * for them; beyond that it fails with {@link OverloadException} rather than being sent to be
+ * rejected upstream. Response tokens are charged once known. Token counts come from
+ * {@link Tokens#estimate(String)}, which is close enough for quota pacing.
+ * </p>
+ */
+public class LlmRateLimiter {
+    private final TokenBucket requests; // null when unlimited
+    private final TokenBucket tokens;   // null when unlimited
+    private final Duration maxWait;
+    private final Counter rejections;
+    private final Timer waits;
+
+    public LlmRateLimiter(long requestsPerMinute, long tokensPerMinute, Duration maxWait, MeterRegistry meterRegistry) {
+        this.requests = requestsPerMinute > 0 ? new TokenBucket(requestsPerMinute) : null;
+        this.tokens = tokensPerMinute > 0 ? new TokenBucket(tokensPerMinute) : null;
+        this.maxWait = maxWait;
+        this.rejections = Counter.builder("agent.llm.ratelimit.rejections").register(meterRegistry);
+        this.waits = Timer.builder("agent.llm.ratelimit.wait").register(meterRegistry);
+    }
+
+    // Blocks until the call may go out; cheap on virtual threads
+    public void acquire(String prompt) {
+        long promptTokens = Tokens.estimate(prompt);
+
+        Duration requestWait = requests == null ? Duration.ZERO : requests.reserve(1, maxWait);
+        if (requestWait == null) {
+            throw reject(requests.timeUntil(1), "requests per minute");
+        }
+        Duration tokenWait = tokens == null ? Duration.ZERO : tokens.reserve(promptTokens, maxWait);
+        if (tokenWait == null) {
+            if (requests != null) requests.charge(-1); // give the request slot back
+            throw reject(tokens.timeUntil(promptTokens), "tokens per minute");
+        }
+
+        Duration wait = requestWait.compareTo(tokenWait) >= 0 ? requestWait : tokenWait;
+        waits.record(wait);
+        if (!wait.isZero()) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for LLM quota", e);
+            }
+        }
+    }
+
+    public void charge(String response) {
+        if (tokens != null && response != null) {
+            tokens.charge(Tokens.estimate(response));
+        }
+    }
+
+    private OverloadException reject(Duration retryAfter, String quota) {
+        rejections.increment();
+        return new OverloadException("llm", retryAfter.plusMillis(1), "LLM " + quota + " quota exhausted");
+    }
+}
@@ -0,0 +1,24 @@
+package llm;
+
+/**
+ * A single prompt sent through {@link LlmClient}.
+ *
+ * @param node      graph node issuing the call (used for per-node cache opt-out and metrics)
+ * @param system    system prompt, or {@code null} to use the ChatClient default
+ * @param user      user prompt
+ * @param cacheable whether the response may be served from / stored in the response cache
+ */
+public record LlmRequest(String node, String system, String user, boolean cacheable) {
+
+    public static LlmRequest of(String node, String user) {
+        return new LlmRequest(node, null, user, true);
+    }
+
+    public LlmRequest withSystem(String system) {
+        return new LlmRequest(node, system, user, cacheable);
+    }
+
+    public LlmRequest noCache() {
+        return new LlmRequest(node, system, user, false);
+    }
+}
@@ -0,0 +1,13 @@
+package llm;
+
+// Token counts estimated at about four characters per token; close enough for quotas and budgets
+public final class Tokens {
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private Tokens() {
+    }
+
+    public static int estimate(String text) {
+        return text == null ? 0 : Math.ceilDiv(text.length(), CHARS_PER_TOKEN);
+    }
+}
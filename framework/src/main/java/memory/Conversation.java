@@ -0,0 +1,96 @@
+package memory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of a conversation as kept in graph state: a running summary of the turns
+ * already folded into it, followed by the turns that are still verbatim.
+ * <p>
+ * Graph state holds it in map form ({@link #toMap()}), so it survives checkpoints and any
+ * {@link state.StateSerializer}. Token totals are sums of the cached per-turn counts; text is
+ * never re-counted.
+ * </p>
+ *
+ * @param id                identifies the conversation across runs (and its pending summary)
+ * @param summary           summary of every turn up to {@code summarizedThrough}; {@code null} before the first one
+ * @param summaryTokens     estimated tokens of {@code summary}
+ * @param summarizedThrough seq of the last turn folded into the summary, 0 when none
+ * @param turns             verbatim turns, oldest first
+ * @param turnTokens        sum of the token counts of {@code turns}
+ */
+public record Conversation(String id, String summary, int summaryTokens, long summarizedThrough,
+                           List<Turn> turns, int turnTokens) {
+
+    public Conversation {
+        turns = List.copyOf(turns);
+    }
+
+    public static Conversation start(String id) {
+        return new Conversation(id, null, 0, 0, List.of(), 0);
+    }
+
+    // Tokens the whole conversation would take in a prompt
+    public int tokens() {
+        return summaryTokens + turnTokens;
+    }
+
+    public long lastSeq() {
+        return turns.isEmpty() ? summarizedThrough : turns.getLast().seq();
+    }
+
+    public Conversation with(Turn turn) {
+        List<Turn> appended = new ArrayList<>(turns.size() + 1);
+        appended.addAll(turns);
+        appended.add(turn);
+        return new Conversation(id, summary, summaryTokens, summarizedThrough, appended, turnTokens + turn.tokens());
+    }
+
+    // Replaces the summary and drops the turns it now covers
+    public Conversation summarized(String newSummary, int newSummaryTokens, long throughSeq) {
+        if (throughSeq <= summarizedThrough) return this;
+        List<Turn> remaining = new ArrayList<>();
+        int remainingTokens = 0;
+        for (Turn turn : turns) {
+            if (turn.seq() > throughSeq) {
+                remaining.add(turn);
+                remainingTokens += turn.tokens();
+            }
+        }
+        return new Conversation(id, newSummary, newSummaryTokens, throughSeq, remaining, remainingTokens);
+    }
+
+    public Map<String, Object> toMap() {
+        List<Map<String, Object>> encodedTurns = new ArrayList<>(turns.size());
+        for (Turn turn : turns) {
+            encodedTurns.add(turn.toMap());
+        }
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", id);
+        map.put("summary", summary);
+        map.put("summaryTokens", summaryTokens);
+        map.put("summarizedThrough", summarizedThrough);
+        map.put("turns", encodedTurns);
+        return map;
+    }
+
+    // Accepts what toMap produced, after any trip through a serializer
+    public static Conversation fromMap(Map<?, ?> map) {
+        List<Turn> turns = new ArrayList<>();
+        int turnTokens = 0;
+        for (Object encoded : (List<?>) map.get("turns")) {
+            Turn turn = Turn.fromMap((Map<?, ?>) encoded);
+            turns.add(turn);
+            turnTokens += turn.tokens();
+        }
+        return new Conversation(
+                (String) map.get("id"),
+                (String) map.get("summary"),
+                ((Number) map.get("summaryTokens")).intValue(),
+                ((Number) map.get("summarizedThrough")).longValue(),
+                turns,
+                turnTokens);
+    }
+}
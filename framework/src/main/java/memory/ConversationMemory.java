@@ -0,0 +1,176 @@
+package memory;
+
+import cache.BoundedCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import llm.LlmClient;
+import llm.LlmRequest;
+import llm.Tokens;
+import org.bsc.langgraph4j.state.AgentState;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the conversation a node sends to the model within a token budget.
+ * <p>
+ * Nodes keep a {@link Conversation} in state under {@link #STATE_KEY}. Each added turn is
+ * counted once. When the conversation grows past {@code tokenBudget}, the turns older than
+ * the newest {@code keepRecentTokens} are folded into the running summary by a background
+ * model call. The summary is merged into the conversation on a later {@link #load}, so no turn
+ * waits for it. Until it arrives, {@link #render} leaves out the oldest turns, so the prompt
+ * stays within the budget either way.
+ * </p>
+ * <p>
+ * Metrics: {@code agent.memory.summaries} (tagged by outcome) and {@code agent.memory.prompt.tokens}.
+ * </p>
+ */
+public class ConversationMemory {
+    // State key holding the conversation in map form
+    public static final String STATE_KEY = "conversation";
+
+    private static final String SUMMARY_NODE = "memory-summary";
+    private static final String SUMMARY_SYSTEM = """
+            You maintain the running summary of a conversation between a user and an assistant. \
+            Merge the new turns into the existing summary. Keep facts, decisions, names, numbers \
+            and open questions; drop pleasantries. Answer with the summary only.""";
+
+    // A summary request in flight; covers every turn up to throughSeq
+    private record Pending(long throughSeq, CompletableFuture<String> summary) {}
+
+    private final LlmClient llmClient;
+    private final int tokenBudget;
+    private final int keepRecentTokens;
+    private final int summaryMaxTokens;
+    // Summaries nobody came back for expire with the cache entry
+    private final BoundedCache<String, Pending> pending = new BoundedCache<>(10_000, Duration.ofHours(1));
+    private final ExecutorService summarizer = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("memory-summary-", 0).factory());
+    private final Counter summarized;
+    private final Counter failed;
+    private final DistributionSummary promptTokens;
+
+    public ConversationMemory(LlmClient llmClient, int tokenBudget, int keepRecentTokens, int summaryMaxTokens,
+                              MeterRegistry meterRegistry) {
+        if (keepRecentTokens >= tokenBudget) {
+            throw new IllegalArgumentException("keepRecentTokens must be below tokenBudget");
+        }
+        this.llmClient = llmClient;
+        this.tokenBudget = tokenBudget;
+        this.keepRecentTokens = keepRecentTokens;
+        this.summaryMaxTokens = summaryMaxTokens;
+        this.summarized = Counter.builder("agent.memory.summaries").tag("outcome", "success").register(meterRegistry);
+        this.failed = Counter.builder("agent.memory.summaries").tag("outcome", "failure").register(meterRegistry);
+        this.promptTokens = DistributionSummary.builder("agent.memory.prompt.tokens").register(meterRegistry);
+    }
+
+    // The state's conversation, with any summary finished since the last call merged in
+    public Conversation load(AgentState state) {
+        return load(state.value(STATE_KEY).orElse(null));
+    }
+
+    // Accepts the stored map form, a Conversation, or null for a new conversation
+    public Conversation load(Object stored) {
+        Conversation conversation = switch (stored) {
+            case null -> Conversation.start(UUID.randomUUID().toString());
+            case Conversation c -> c;
+            case Map<?, ?> map -> Conversation.fromMap(map);
+            default -> throw new IllegalArgumentException("Not a conversation: " + stored.getClass().getName());
+        };
+        return mergeFinished(conversation);
+    }
+
+    public Conversation add(Conversation conversation, Turn.Role role, String text) {
+        Turn turn = new Turn(conversation.lastSeq() + 1, role, text, Tokens.estimate(text));
+        Conversation updated = conversation.with(turn);
+        if (updated.tokens() > tokenBudget) {
+            summarizeInBackground(updated);
+        }
+        return updated;
+    }
+
+    /**
+     * The conversation as prompt text: the summary, then as many of the newest turns as fit the
+     * budget. The newest turn is always included.
+     */
+    public String render(Conversation conversation) {
+        List<Turn> turns = conversation.turns();
+        int available = tokenBudget - conversation.summaryTokens();
+        Deque<Turn> included = new ArrayDeque<>();
+        int used = 0;
+        for (int i = turns.size() - 1; i >= 0; i--) {
+            Turn turn = turns.get(i);
+            if (!included.isEmpty() && used + turn.tokens() > available) break;
+            included.addFirst(turn);
+            used += turn.tokens();
+        }
+        promptTokens.record(conversation.summaryTokens() + used);
+
+        StringBuilder prompt = new StringBuilder();
+        if (conversation.summary() != null) {
+            prompt.append("Summary of the earlier conversation:\n").append(conversation.summary()).append("\n\n");
+        }
+        for (Turn turn : included) {
+            prompt.append(turn.render()).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    // Shorthand for the state update that stores the conversation
+    public static Map<String, Object> toState(Conversation conversation) {
+        return Map.of(STATE_KEY, conversation.toMap());
+    }
+
+    private Conversation mergeFinished(Conversation conversation) {
+        Pending request = pending.get(conversation.id());
+        if (request == null || !request.summary().isDone()) return conversation;
+        pending.invalidate(conversation.id());
+        if (request.summary().isCompletedExceptionally()) {
+            return conversation; // the next add over budget asks again
+        }
+        String summary = request.summary().join();
+        return conversation.summarized(summary, Tokens.estimate(summary), request.throughSeq());
+    }
+
+    private void summarizeInBackground(Conversation conversation) {
+        // One summary per conversation at a time; two runs racing here at worst ask twice
+        if (pending.get(conversation.id()) != null) return;
+
+        // Fold everything older than the newest keepRecentTokens
+        List<Turn> turns = conversation.turns();
+        int recent = 0;
+        int cut = turns.size();
+        while (cut > 0 && recent + turns.get(cut - 1).tokens() <= keepRecentTokens) {
+            recent += turns.get(--cut).tokens();
+        }
+        if (cut == 0) return;
+        List<Turn> folded = turns.subList(0, cut);
+
+        StringBuilder prompt = new StringBuilder();
+        if (conversation.summary() != null) {
+            prompt.append("Existing summary:\n").append(conversation.summary()).append("\n\n");
+        }
+        prompt.append("New turns:\n");
+        for (Turn turn : folded) {
+            prompt.append(turn.render()).append('\n');
+        }
+        prompt.append("\nWrite the updated summary in at most ").append(summaryMaxTokens * 3 / 4).append(" words.");
+        LlmRequest request = new LlmRequest(SUMMARY_NODE, SUMMARY_SYSTEM, prompt.toString(), true);
+
+        // Off the run's thread and outside its context: the summary outlives the run that asked for it
+        CompletableFuture<String> summary = CompletableFuture.supplyAsync(() -> llmClient.call(request), summarizer)
+                .whenComplete((result, error) -> {
+                    if (error == null) summarized.increment();
+                    else failed.increment();
+                });
+        pending.put(conversation.id(), new Pending(folded.getLast().seq(), summary));
+    }
+}
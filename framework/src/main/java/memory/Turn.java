@@ -0,0 +1,50 @@
+package memory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One message of a conversation, with its token count taken once when the turn is added.
+ *
+ * @param seq    position in the conversation, increasing from 1; survives summarization
+ * @param role   who wrote the message
+ * @param text   message text
+ * @param tokens estimated tokens of {@code text}
+ */
+public record Turn(long seq, Role role, String text, int tokens) {
+
+    public enum Role {
+        USER("User"),
+        ASSISTANT("Assistant");
+
+        private final String label;
+
+        Role(String label) {
+            this.label = label;
+        }
+
+        public String label() { return label; }
+    }
+
+    // Prompt line of the turn
+    public String render() {
+        return role.label() + ": " + text;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("seq", seq);
+        map.put("role", role.name());
+        map.put("text", text);
+        map.put("tokens", tokens);
+        return map;
+    }
+
+    static Turn fromMap(Map<?, ?> map) {
+        return new Turn(
+                ((Number) map.get("seq")).longValue(),
+                Role.valueOf((String) map.get("role")),
+                (String) map.get("text"),
+                ((Number) map.get("tokens")).intValue());
+    }
+}
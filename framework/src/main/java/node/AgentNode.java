@@ -3,6 +3,6 @@ package node;
 import state.AgentState;
 
 @FunctionalInterface
-public interface AgentNode<S extends AgentState> {
+public interface AgentNode<S extends AgentState> extends FlowNode<S> {
     S execute(S state);
 }
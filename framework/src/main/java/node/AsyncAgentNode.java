@@ -0,0 +1,25 @@
+package node;
+
+import state.AgentState;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Non-blocking node contract.
+ * <p>
+ * Implementations return immediately with a future of the <b>partial state update</b>
+ * (only the keys the node changed). The framework never parks a thread while waiting on it,
+ * so nodes that call the LLM asynchronously cost nothing while the request is in flight.
+ * </p>
+ */
+@FunctionalInterface
+public interface AsyncAgentNode<S extends AgentState> extends FlowNode<S> {
+    CompletableFuture<Map<String, Object>> executeAsync(S state);
+
+    // Adapter for nodes that prefer to complete with a full state object
+    static <S extends AgentState> AsyncAgentNode<S> ofState(Function<S, CompletableFuture<S>> action) {
+        return state -> action.apply(state).thenApply(result -> result.data());
+    }
+}
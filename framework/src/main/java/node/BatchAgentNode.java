@@ -0,0 +1,29 @@
+package node;
+
+import state.AgentState;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node that processes the states of many concurrent runs in one call, e.g. one batched LLM
+ * prompt or one database round trip for a whole {@code runBatch}.
+ * <p>
+ * The framework collects invocations arriving within {@link #maxDelay()} (or until
+ * {@link #maxBatchSize()} are waiting) and hands them over together. The result must hold one
+ * partial state update per input state, in the same order. A single run through this node
+ * waits up to {@code maxDelay} for company, so keep it small.
+ * </p>
+ */
+public interface BatchAgentNode<S extends AgentState> extends FlowNode<S> {
+    List<Map<String, Object>> executeBatch(List<S> states);
+
+    default int maxBatchSize() {
+        return 32;
+    }
+
+    default Duration maxDelay() {
+        return Duration.ofMillis(20);
+    }
+}
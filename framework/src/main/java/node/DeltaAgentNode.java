@@ -0,0 +1,17 @@
+package node;
+
+import state.AgentState;
+
+import java.util.Map;
+
+/**
+ * Blocking node that returns only the keys it changed.
+ * <p>
+ * Prefer this over {@link AgentNode} when the state is large: nothing is copied or compared,
+ * the returned map is the partial update handed to the graph as-is.
+ * </p>
+ */
+@FunctionalInterface
+public interface DeltaAgentNode<S extends AgentState> extends FlowNode<S> {
+    Map<String, Object> update(S state);
+}
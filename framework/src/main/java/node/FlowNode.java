@@ -0,0 +1,7 @@
+package node;
+
+import state.AgentState;
+
+// Common marker for anything FlowBuilder can register as a graph node
+public interface FlowNode<S extends AgentState> {
+}
@@ -0,0 +1,26 @@
+package node;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a node whose output depends only on the state keys it declares with {@link Reads}.
+ * {@code FlowBuilder} then reuses the node's previous update for the same key values instead of
+ * running it again. Only for deterministic nodes: calls to clocks, random sources or external
+ * systems whose answers change would be frozen for {@link #ttl()}.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Memoized {
+    // Distinct inputs remembered; the least recently used go first
+    int maxEntries() default 1000;
+
+    // How long an update is reused, in the same format as durations in application.yaml
+    String ttl() default "1h";
+}
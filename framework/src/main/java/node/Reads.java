@@ -0,0 +1,21 @@
+package node;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * State keys a node reads. Together with {@link Writes} it lets {@code FlowBuilder} run
+ * neighbouring {@code next(...)} steps concurrently when neither touches what the other writes.
+ * A node declaring only one of the two always runs in its written position.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Reads {
+    String[] value();
+}
@@ -0,0 +1,139 @@
+package observability;
+
+import cache.BoundedCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer instrumentation for graph nodes and whole workflow runs.
+ * <p>
+ * Meters are resolved once, when a graph is compiled, and captured by the node wrapper, so the
+ * hot path is two {@code nanoTime} reads, an atomic in-flight update and a timer record.
+ * Timers publish percentile histograms so p99 per node can be computed server-side.
+ * </p>
+ * <ul>
+ * <li>{@code agent.node.duration} / {@code agent.workflow.duration} - timers, tagged with outcome</li>
+ * <li>{@code agent.node.inflight} / {@code agent.workflow.inflight} - gauges</li>
+ * <li>{@code agent.node.errors} / {@code agent.workflow.errors} - counters</li>
+ * <li>{@code agent.node.memo.hits}, {@code .misses}, {@code .evictions}, {@code .size} - result cache of memoized nodes</li>
+ * </ul>
+ * All meters carry {@code workflow} and {@code version} tags; node meters also carry {@code node}.
+ */
+public class NodeMetrics {
+    private final MeterRegistry registry;
+    private final Map<Tags, Meters> meters = new ConcurrentHashMap<>();
+    private final Map<Tags, MemoSource> memos = new ConcurrentHashMap<>();
+
+    public NodeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // Meters go nowhere; for builders used outside a Spring context
+    public static NodeMetrics noop() {
+        return new NodeMetrics(new CompositeMeterRegistry());
+    }
+
+    public Meters node(String workflowId, String workflowVersion, String node) {
+        Tags tags = Tags.of("workflow", workflowId, "version", workflowVersion, "node", node);
+        return meters.computeIfAbsent(tags, t -> new Meters("agent.node", t, registry));
+    }
+
+    public Meters workflow(String workflowId, String workflowVersion) {
+        Tags tags = Tags.of("workflow", workflowId, "version", workflowVersion);
+        return meters.computeIfAbsent(tags, t -> new Meters("agent.workflow", t, registry));
+    }
+
+    // A counter tagged like the node meters, for node-level events that are not executions
+    public Counter counter(String name, String workflowId, String workflowVersion, String node) {
+        return Counter.builder(name)
+                .tags(Tags.of("workflow", workflowId, "version", workflowVersion, "node", node))
+                .register(registry);
+    }
+
+    // Publishes the result cache of a memoized node. Recompiling the node (WorkflowEngine#reload)
+    // points the same meters at the new cache; Micrometer would otherwise keep the first one.
+    public void memo(String workflowId, String workflowVersion, String node, BoundedCache<?, ?> cache) {
+        Tags tags = Tags.of("workflow", workflowId, "version", workflowVersion, "node", node);
+        memos.computeIfAbsent(tags, t -> {
+            MemoSource source = new MemoSource();
+            FunctionCounter.builder("agent.node.memo.hits", source, MemoSource::hits).tags(t).register(registry);
+            FunctionCounter.builder("agent.node.memo.misses", source, MemoSource::misses).tags(t).register(registry);
+            FunctionCounter.builder("agent.node.memo.evictions", source, MemoSource::evictions).tags(t).register(registry);
+            Gauge.builder("agent.node.memo.size", source, MemoSource::size).tags(t).register(registry);
+            return source;
+        }).swap(cache);
+    }
+
+    // The current cache of a memoized node; counts of the caches it replaced carry over so the
+    // counters never go back
+    private static final class MemoSource {
+        private BoundedCache<?, ?> cache;
+        private long retiredHits;
+        private long retiredMisses;
+        private long retiredEvictions;
+
+        synchronized void swap(BoundedCache<?, ?> next) {
+            if (cache == next) return;
+            if (cache != null) {
+                BoundedCache.Stats stats = cache.stats();
+                retiredHits += stats.hits();
+                retiredMisses += stats.misses();
+                retiredEvictions += stats.evictions();
+            }
+            cache = next;
+        }
+
+        synchronized double hits() { return retiredHits + cache.stats().hits(); }
+        synchronized double misses() { return retiredMisses + cache.stats().misses(); }
+        synchronized double evictions() { return retiredEvictions + cache.stats().evictions(); }
+        synchronized double size() { return cache.size(); }
+    }
+
+    public static final class Meters {
+        private final Timer success;
+        private final Timer failure;
+        private final Counter errors;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private Meters(String prefix, Tags tags, MeterRegistry registry) {
+            this.success = timer(prefix, tags.and("outcome", "success"), registry);
+            this.failure = timer(prefix, tags.and("outcome", "error"), registry);
+            this.errors = Counter.builder(prefix + ".errors").tags(tags).register(registry);
+            Gauge.builder(prefix + ".inflight", inFlight, AtomicInteger::get).tags(tags).register(registry);
+        }
+
+        private static Timer timer(String prefix, Tags tags, MeterRegistry registry) {
+            return Timer.builder(prefix + ".duration")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        // Returns the start timestamp to hand back to stop()
+        public long start() {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        public void stop(long start, Throwable error) {
+            long elapsed = System.nanoTime() - start;
+            inFlight.decrementAndGet();
+            if (error == null) {
+                success.record(elapsed, TimeUnit.NANOSECONDS);
+            } else {
+                failure.record(elapsed, TimeUnit.NANOSECONDS);
+                errors.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package observability;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Timeline of one workflow run: node executions, routing decisions and model calls.
+ * <p>
+ * Spans go into a fixed-size ring without locks: a writer claims a slot with one atomic
+ * increment and publishes the span with a release store, so recording from parallel branches
+ * never contends on more than a counter. When a run produces more spans than the ring holds,
+ * the oldest are overwritten and counted in {@link #dropped()}.
+ * </p>
+ */
+public final class RunTrace {
+
+    public enum Kind { NODE, ROUTE, LLM }
+
+    /**
+     * @param startNanos    offset from the start of the run
+     * @param durationNanos 0 for instant events such as routing decisions
+     * @param threadId      thread the span was recorded on
+     * @param detail        free-form annotation (chosen route, error type); may be null
+     */
+    public record Span(Kind kind, String name, long startNanos, long durationNanos, long threadId,
+                       String detail, boolean error) {}
+
+    private final String runId;
+    private final String workflowId;
+    private final String workflowVersion;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private final AtomicReferenceArray<Span> ring;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    private volatile long durationNanos = -1; // -1 while the run is live
+    private volatile String failure;
+
+    RunTrace(String runId, String workflowId, String workflowVersion, int capacity) {
+        this.runId = runId;
+        this.workflowId = workflowId;
+        this.workflowVersion = workflowVersion;
+        this.startEpochNanos = System.currentTimeMillis() * 1_000_000L;
+        this.startNanos = System.nanoTime();
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // startNanos/endNanos are System.nanoTime() readings
+    public void record(Kind kind, String name, long startNanos, long endNanos, String detail, boolean error) {
+        Span span = new Span(kind, name, startNanos - this.startNanos, endNanos - startNanos,
+                Thread.currentThread().threadId(), detail, error);
+        ring.setRelease((int) (cursor.getAndIncrement() & mask), span);
+    }
+
+    public void event(Kind kind, String name, String detail) {
+        long now = System.nanoTime();
+        record(kind, name, now, now, detail, false);
+    }
+
+    void finish(Throwable error) {
+        failure = error == null ? null : error.getClass().getSimpleName();
+        durationNanos = System.nanoTime() - startNanos;
+    }
+
+    public String runId() { return runId; }
+    public String workflowId() { return workflowId; }
+    public String workflowVersion() { return workflowVersion; }
+    public long startEpochNanos() { return startEpochNanos; }
+
+    // Wall time of the run; -1 while it is still executing
+    public long durationNanos() { return durationNanos; }
+
+    // Simple name of the exception that ended the run; null when it succeeded
+    public String failure() { return failure; }
+
+    public long dropped() {
+        return Math.max(0, cursor.get() - ring.length());
+    }
+
+    // The retained spans, ordered by start
+    public List<Span> spans() {
+        List<Span> spans = new ArrayList<>(ring.length());
+        for (int i = 0; i < ring.length(); i++) {
+            Span span = ring.getAcquire(i);
+            if (span != null) spans.add(span);
+        }
+        spans.sort(Comparator.comparingLong(Span::startNanos));
+        return spans;
+    }
+}
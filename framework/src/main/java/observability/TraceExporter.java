@@ -0,0 +1,148 @@
+package observability;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes a {@link RunTrace} in formats existing viewers open directly.
+ * <ul>
+ * <li>{@link Format#CHROME} - trace-event JSON for chrome://tracing and Perfetto; one row per thread</li>
+ * <li>{@link Format#OTLP} - OTLP/JSON {@code ExportTraceServiceRequest}, the run as root span</li>
+ * </ul>
+ */
+public final class TraceExporter {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SERVICE = "agent-flow";
+
+    public enum Format {
+        CHROME("trace.json"),
+        OTLP("otlp.json");
+
+        private final String suffix;
+
+        Format(String suffix) {
+            this.suffix = suffix;
+        }
+
+        public String suffix() { return suffix; }
+    }
+
+    private TraceExporter() {
+    }
+
+    public static void write(RunTrace trace, Format format, OutputStream out) throws IOException {
+        MAPPER.writeValue(out, switch (format) {
+            case CHROME -> chrome(trace);
+            case OTLP -> otlp(trace);
+        });
+    }
+
+    private static Map<String, Object> chrome(RunTrace trace) {
+        List<Map<String, Object>> events = new ArrayList<>();
+        Map<String, Object> root = chromeEvent(trace.workflowId(), "run", 0, Math.max(0, trace.durationNanos()), 0);
+        root.put("args", Map.of("run", trace.runId(), "version", trace.workflowVersion(),
+                "outcome", trace.failure() == null ? "success" : trace.failure()));
+        events.add(root);
+
+        for (RunTrace.Span span : trace.spans()) {
+            Map<String, Object> event = chromeEvent(span.name(), span.kind().name().toLowerCase(Locale.ROOT),
+                    span.startNanos(), span.durationNanos(), span.threadId());
+            if (span.kind() == RunTrace.Kind.ROUTE) {
+                event.put("ph", "i");
+                event.put("s", "t");
+                event.remove("dur");
+            }
+            Map<String, Object> args = new HashMap<>();
+            if (span.detail() != null) args.put("detail", span.detail());
+            if (span.error()) args.put("error", true);
+            if (!args.isEmpty()) event.put("args", args);
+            events.add(event);
+        }
+
+        Map<String, Object> document = new HashMap<>();
+        document.put("traceEvents", events);
+        document.put("displayTimeUnit", "ms");
+        document.put("otherData", Map.of("run", trace.runId(), "droppedSpans", trace.dropped()));
+        return document;
+    }
+
+    // Complete ("X") event; trace-event timestamps are microseconds
+    private static Map<String, Object> chromeEvent(String name, String category, long startNanos, long durationNanos, long threadId) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("name", name);
+        event.put("cat", category);
+        event.put("ph", "X");
+        event.put("ts", startNanos / 1_000.0);
+        event.put("dur", durationNanos / 1_000.0);
+        event.put("pid", 1);
+        event.put("tid", threadId);
+        return event;
+    }
+
+    private static Map<String, Object> otlp(RunTrace trace) {
+        String traceId = traceId(trace.runId());
+        String rootId = spanId(0);
+        long start = trace.startEpochNanos();
+
+        List<Map<String, Object>> spans = new ArrayList<>();
+        spans.add(otlpSpan(traceId, rootId, null, trace.workflowId(), start, start + Math.max(0, trace.durationNanos()),
+                List.of(attribute("agent.run_id", trace.runId()), attribute("agent.workflow_version", trace.workflowVersion())),
+                trace.failure() != null));
+
+        int index = 1;
+        for (RunTrace.Span span : trace.spans()) {
+            List<Map<String, Object>> attributes = new ArrayList<>();
+            attributes.add(attribute("agent.kind", span.kind().name().toLowerCase(Locale.ROOT)));
+            attributes.add(attribute("thread.id", String.valueOf(span.threadId())));
+            if (span.detail() != null) attributes.add(attribute("agent.detail", span.detail()));
+            long spanStart = start + span.startNanos();
+            spans.add(otlpSpan(traceId, spanId(index++), rootId, span.name(), spanStart, spanStart + span.durationNanos(),
+                    attributes, span.error()));
+        }
+
+        Map<String, Object> resource = Map.of("attributes", List.of(attribute("service.name", SERVICE)));
+        Map<String, Object> scopeSpans = Map.of("scope", Map.of("name", SERVICE), "spans", spans);
+        return Map.of("resourceSpans", List.of(Map.of("resource", resource, "scopeSpans", List.of(scopeSpans))));
+    }
+
+    private static Map<String, Object> otlpSpan(String traceId, String spanId, String parentId, String name,
+                                                long startNanos, long endNanos, List<Map<String, Object>> attributes,
+                                                boolean error) {
+        Map<String, Object> span = new HashMap<>();
+        span.put("traceId", traceId);
+        span.put("spanId", spanId);
+        if (parentId != null) span.put("parentSpanId", parentId);
+        span.put("name", name);
+        span.put("kind", 1); // SPAN_KIND_INTERNAL
+        // 64-bit integers are strings in OTLP/JSON
+        span.put("startTimeUnixNano", Long.toString(startNanos));
+        span.put("endTimeUnixNano", Long.toString(endNanos));
+        span.put("attributes", attributes);
+        span.put("status", Map.of("code", error ? 2 : 1));
+        return span;
+    }
+
+    private static Map<String, Object> attribute(String key, String value) {
+        return Map.of("key", key, "value", Map.of("stringValue", value == null ? "" : value));
+    }
+
+    // Same run, same trace id, whichever process exports it
+    private static String traceId(String runId) {
+        UUID uuid = UUID.nameUUIDFromBytes(runId.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().toHexDigits(uuid.getMostSignificantBits()) + HexFormat.of().toHexDigits(uuid.getLeastSignificantBits());
+    }
+
+    private static String spanId(int index) {
+        return HexFormat.of().toHexDigits((long) index + 1);
+    }
+}
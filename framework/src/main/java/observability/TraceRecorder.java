@@ -0,0 +1,95 @@
+package observability;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Records a {@link RunTrace} for a sample of workflow runs and keeps the slowest of them.
+ * <p>
+ * Recording is cheap enough to leave on: a run that is not sampled costs one random draw, a
+ * sampled one an atomic increment per span. When a run finishes it competes for one of the
+ * {@code retainSlowest} places; everything else is garbage as soon as the run returns, so
+ * memory stays bounded however many runs go through. Retained traces can be written to
+ * {@code exportDirectory} with {@link #export}.
+ * </p>
+ */
+public class TraceRecorder {
+    private final double sampleRate;
+    private final int spansPerRun;
+    private final int retainSlowest;
+    private final Path exportDirectory;
+    // Min-heap on duration: the head is the first to go when a slower run arrives
+    private final PriorityQueue<RunTrace> slowest = new PriorityQueue<>(Comparator.comparingLong(RunTrace::durationNanos));
+
+    public TraceRecorder(double sampleRate, int spansPerRun, int retainSlowest, Path exportDirectory) {
+        this.sampleRate = sampleRate;
+        this.spansPerRun = spansPerRun;
+        this.retainSlowest = retainSlowest;
+        this.exportDirectory = exportDirectory;
+    }
+
+    // Records nothing; for settings built outside a Spring context
+    public static TraceRecorder disabled() {
+        return new TraceRecorder(0, 0, 0, null);
+    }
+
+    // The trace to record the run into, or null when the run is not sampled
+    public RunTrace begin(String runId, String workflowId, String workflowVersion) {
+        if (sampleRate <= 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return null;
+        }
+        return new RunTrace(runId, workflowId, workflowVersion, spansPerRun);
+    }
+
+    public void finish(RunTrace trace, Throwable failure) {
+        if (trace == null) return;
+        trace.finish(failure);
+        synchronized (slowest) {
+            if (slowest.size() < retainSlowest) {
+                slowest.add(trace);
+            } else if (!slowest.isEmpty() && slowest.peek().durationNanos() < trace.durationNanos()) {
+                slowest.poll();
+                slowest.add(trace);
+            }
+        }
+    }
+
+    // Retained traces, slowest first
+    public List<RunTrace> slowest() {
+        List<RunTrace> traces;
+        synchronized (slowest) {
+            traces = new ArrayList<>(slowest);
+        }
+        traces.sort(Comparator.comparingLong(RunTrace::durationNanos).reversed());
+        return traces;
+    }
+
+    public Optional<RunTrace> find(String runId) {
+        synchronized (slowest) {
+            return slowest.stream().filter(trace -> trace.runId().equals(runId)).findFirst();
+        }
+    }
+
+    // Writes a retained trace to the export directory and returns the file
+    public Optional<Path> export(String runId, TraceExporter.Format format) throws IOException {
+        Optional<RunTrace> trace = find(runId);
+        if (trace.isEmpty()) return Optional.empty();
+        if (exportDirectory == null) throw new IllegalStateException("No trace export directory configured");
+
+        Files.createDirectories(exportDirectory);
+        // Run ids come from clients; keep only characters that are safe in a file name
+        Path file = exportDirectory.resolve(runId.replaceAll("[^A-Za-z0-9._-]", "_") + "." + format.suffix());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            TraceExporter.write(trace.get(), format, out);
+        }
+        return Optional.of(file);
+    }
+}
@@ -1,13 +1,21 @@
 package state;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 public abstract class AgentState extends org.bsc.langgraph4j.state.AgentState {
+    // Data key under which the engine stores the id of the run (also the checkpoint thread id)
+    public static final String RUN_ID = "__run_id";
+    // Data key holding the run's deadline (epoch millis) when it has one
+    public static final String DEADLINE = "__deadline";
+
     // We add our enterprise headers here
     private String workflowId;
     private String workflowVersion;
     private String correlationId;
+    private String runId;
     private Map<String, Object> metadata = new HashMap<>();
 
     // Constructor matching super if required by your specific library version
@@ -28,4 +36,20 @@ public abstract class AgentState extends org.bsc.langgraph4j.state.AgentState {
 
     public String getWorkflowVersion() { return workflowVersion; }
     public void setWorkflowVersion(String workflowVersion) { this.workflowVersion = workflowVersion; }
+
+    // Set by the engine on the state a run was started with, so its caller can resume or cancel it
+    public String getRunId() { return this.<String>value(RUN_ID).orElse(runId); }
+    public void setRunId(String runId) { this.runId = runId; }
+
+    // Lets nodes size their own work (e.g. skip an optional LLM call) to the time the run has left
+    public Optional<Instant> getDeadline() { return this.<Long>value(DEADLINE).map(Instant::ofEpochMilli); }
+
+    // Graph steps build fresh state objects from the data map; this carries our headers over
+    public void copyHeadersFrom(AgentState source) {
+        this.workflowId = source.workflowId;
+        this.workflowVersion = source.workflowVersion;
+        this.correlationId = source.correlationId;
+        this.runId = source.runId;
+        this.metadata = new HashMap<>(source.metadata);
+    }
 }
@@ -0,0 +1,363 @@
+package state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary {@link StateSerializer}.
+ * <p>
+ * Layout: a magic byte, then a tagged value tree. Lengths and integers are varints (zigzag
+ * for signed values). Map keys are interned per payload: the first occurrence is written
+ * out, later ones (typically the same field names across a list of extracted records) are a
+ * back-reference to it. Strings at least {@code compressThreshold} bytes long are deflated
+ * when that makes them smaller. Values of other types are embedded as JSON and come back in
+ * generic form, exactly as with {@link JacksonStateSerializer}.
+ * </p>
+ */
+public class BinaryStateSerializer implements StateSerializer {
+    // Format marker and version; JSON payloads start with '{' and never with this byte
+    public static final byte MAGIC = (byte) 0xB1;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte STRING = 7;
+    private static final byte DEFLATED = 8;
+    private static final byte LIST = 9;
+    private static final byte MAP = 10;
+    private static final byte BYTES = 11;
+    private static final byte JSON = 12;
+
+    private final int compressThreshold;
+    private final ObjectMapper fallback = new ObjectMapper();
+
+    public BinaryStateSerializer() {
+        this(4096);
+    }
+
+    // Strings of at least this many UTF-8 bytes are considered for compression; 0 disables it
+    public BinaryStateSerializer(int compressThreshold) {
+        this.compressThreshold = compressThreshold <= 0 ? Integer.MAX_VALUE : compressThreshold;
+    }
+
+    @Override
+    public byte[] write(Map<String, Object> data) {
+        Output out = new Output(256);
+        out.writeByte(MAGIC);
+        writeMap(out, data, new HashMap<>());
+        return out.toByteArray();
+    }
+
+    @Override
+    public Map<String, Object> read(byte[] bytes) {
+        if (bytes.length == 0 || bytes[0] != MAGIC) {
+            throw new IllegalArgumentException("Not a binary state payload");
+        }
+        Input in = new Input(bytes, 1);
+        return readMap(in, new ArrayList<>());
+    }
+
+    private void writeMap(Output out, Map<?, ?> map, Map<String, Integer> keys) {
+        out.writeVarint(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeKey(out, String.valueOf(entry.getKey()), keys);
+            writeValue(out, entry.getValue(), keys);
+        }
+    }
+
+    // (index << 1) | 1 refers to an earlier key; (length << 1) is followed by a new key's bytes
+    private static void writeKey(Output out, String key, Map<String, Integer> keys) {
+        Integer id = keys.get(key);
+        if (id != null) {
+            out.writeVarint(((long) id << 1) | 1);
+            return;
+        }
+        keys.put(key, keys.size());
+        byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+        out.writeVarint((long) utf8.length << 1);
+        out.writeBytes(utf8);
+    }
+
+    private void writeValue(Output out, Object value, Map<String, Integer> keys) {
+        switch (value) {
+            case null -> out.writeByte(NULL);
+            case Boolean b -> out.writeByte(b ? TRUE : FALSE);
+            case Integer i -> writeSigned(out, INT, i);
+            case Short s -> writeSigned(out, INT, s);
+            case Byte b -> writeSigned(out, INT, b);
+            case Long l -> writeSigned(out, LONG, l);
+            case Double d -> {
+                out.writeByte(DOUBLE);
+                out.writeFixed64(Double.doubleToRawLongBits(d));
+            }
+            case Float f -> {
+                out.writeByte(FLOAT);
+                out.writeFixed32(Float.floatToRawIntBits(f));
+            }
+            case String s -> writeString(out, s);
+            case Enum<?> e -> writeString(out, e.name());
+            case byte[] bytes -> {
+                out.writeByte(BYTES);
+                out.writeVarint(bytes.length);
+                out.writeBytes(bytes);
+            }
+            case Map<?, ?> map -> {
+                out.writeByte(MAP);
+                writeMap(out, map, keys);
+            }
+            case Collection<?> list -> {
+                out.writeByte(LIST);
+                out.writeVarint(list.size());
+                for (Object element : list) writeValue(out, element, keys);
+            }
+            case Object[] array -> {
+                out.writeByte(LIST);
+                out.writeVarint(array.length);
+                for (Object element : array) writeValue(out, element, keys);
+            }
+            default -> {
+                byte[] json;
+                try {
+                    json = fallback.writeValueAsBytes(value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not serialize " + value.getClass().getName(), e);
+                }
+                out.writeByte(JSON);
+                out.writeVarint(json.length);
+                out.writeBytes(json);
+            }
+        }
+    }
+
+    private static void writeSigned(Output out, byte tag, long value) {
+        out.writeByte(tag);
+        out.writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeString(Output out, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= compressThreshold) {
+            byte[] compressed = deflate(utf8);
+            if (compressed != null) {
+                out.writeByte(DEFLATED);
+                out.writeVarint(utf8.length);
+                out.writeVarint(compressed.length);
+                out.writeBytes(compressed);
+                return;
+            }
+        }
+        out.writeByte(STRING);
+        out.writeVarint(utf8.length);
+        out.writeBytes(utf8);
+    }
+
+    // null when compression would not save anything
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[raw.length];
+            int length = deflater.deflate(buffer);
+            return deflater.finished() ? Arrays.copyOf(buffer, length) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private Map<String, Object> readMap(Input in, List<String> keys) {
+        int size = (int) in.readVarint();
+        Map<String, Object> map = new HashMap<>(Math.max(4, (int) (size / 0.75f) + 1));
+        for (int i = 0; i < size; i++) {
+            String key = readKey(in, keys);
+            map.put(key, readValue(in, keys));
+        }
+        return map;
+    }
+
+    private static String readKey(Input in, List<String> keys) {
+        long header = in.readVarint();
+        if ((header & 1) == 1) {
+            return keys.get((int) (header >>> 1));
+        }
+        String key = in.readString((int) (header >>> 1));
+        keys.add(key);
+        return key;
+    }
+
+    private Object readValue(Input in, List<String> keys) {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case NULL -> null;
+            case FALSE -> Boolean.FALSE;
+            case TRUE -> Boolean.TRUE;
+            case INT -> (int) readSigned(in);
+            case LONG -> readSigned(in);
+            case DOUBLE -> Double.longBitsToDouble(in.readFixed64());
+            case FLOAT -> Float.intBitsToFloat(in.readFixed32());
+            case STRING -> in.readString((int) in.readVarint());
+            case DEFLATED -> {
+                int rawLength = (int) in.readVarint();
+                int compressedLength = (int) in.readVarint();
+                yield new String(inflate(in.readBytes(compressedLength), rawLength), StandardCharsets.UTF_8);
+            }
+            case BYTES -> in.readBytes((int) in.readVarint());
+            case MAP -> readMap(in, keys);
+            case LIST -> {
+                int size = (int) in.readVarint();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) list.add(readValue(in, keys));
+                yield list;
+            }
+            case JSON -> {
+                try {
+                    yield fallback.readValue(in.readBytes((int) in.readVarint()), Object.class);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Corrupt embedded JSON value", e);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown value tag " + tag);
+        };
+    }
+
+    private static long readSigned(Input in) {
+        long raw = in.readVarint();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int length = inflater.inflate(raw);
+            if (length != rawLength) throw new IllegalArgumentException("Corrupt compressed string");
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed string", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int position;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeByte(byte value) {
+            ensure(1);
+            buffer[position++] = value;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeFixed64(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buffer[position++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeFixed32(int value) {
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                buffer[position++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        byte readByte() {
+            return buffer[position++];
+        }
+
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        long readFixed64() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (buffer[position++] & 0xFFL) << (i * 8);
+            }
+            return value;
+        }
+
+        int readFixed32() {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value |= (buffer[position++] & 0xFF) << (i * 8);
+            }
+            return value;
+        }
+
+        byte[] readBytes(int length) {
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readString(int length) {
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+// JSON encoding; readable on disk, and the reference the binary format is measured against
+public class JacksonStateSerializer implements StateSerializer {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Override
+    public byte[] write(Map<String, Object> data) {
+        try {
+            return mapper.writeValueAsBytes(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize state", e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> read(byte[] bytes) {
+        try {
+            return mapper.readValue(bytes, Map.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not deserialize state", e);
+        }
+    }
+}
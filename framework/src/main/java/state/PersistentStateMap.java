@@ -0,0 +1,120 @@
+package state;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable map that shares structure with the version it was derived from.
+ * <p>
+ * Each {@link #with(StateDelta)} adds a thin layer holding only the changed keys on top of the
+ * previous version, so deriving a new version costs the size of the change. Lookups walk at most
+ * {@code MAX_DEPTH} layers; when a chain gets that deep the next version is flattened into a new
+ * base, which bounds read cost and lets old layers be collected.
+ * </p>
+ */
+public final class PersistentStateMap extends AbstractMap<String, Object> {
+    private static final int MAX_DEPTH = 8;
+    // Tombstone for keys removed in a layer
+    private static final Object REMOVED = new Object();
+    private static final PersistentStateMap EMPTY = new PersistentStateMap(null, Map.of(), 0, 0);
+
+    private final PersistentStateMap parent; // null for a base map
+    private final Map<String, Object> layer;  // base: all entries; overlay: changed keys only
+    private final int size;
+    private final int depth;
+    private Map<String, Object> flattened;   // lazily materialized view for iteration
+
+    private PersistentStateMap(PersistentStateMap parent, Map<String, Object> layer, int size, int depth) {
+        this.parent = parent;
+        this.layer = layer;
+        this.size = size;
+        this.depth = depth;
+    }
+
+    public static PersistentStateMap empty() {
+        return EMPTY;
+    }
+
+    public static PersistentStateMap of(Map<String, Object> data) {
+        if (data instanceof PersistentStateMap persistent) return persistent;
+        return new PersistentStateMap(null, new HashMap<>(data), data.size(), 0);
+    }
+
+    public PersistentStateMap with(StateDelta delta) {
+        if (delta.isEmpty()) return this;
+
+        if (depth + 1 > MAX_DEPTH) {
+            Map<String, Object> base = new HashMap<>(materialize());
+            base.putAll(delta.updated());
+            delta.removed().forEach(base::remove);
+            return new PersistentStateMap(null, base, base.size(), 0);
+        }
+
+        Map<String, Object> changes = new HashMap<>(delta.updated());
+        int newSize = size;
+        for (String key : delta.updated().keySet()) {
+            if (!containsKey(key)) newSize++;
+        }
+        for (String key : delta.removed()) {
+            if (containsKey(key)) {
+                changes.put(key, REMOVED);
+                newSize--;
+            }
+        }
+        return new PersistentStateMap(this, changes, newSize, depth + 1);
+    }
+
+    public PersistentStateMap with(Map<String, Object> updates) {
+        return with(new StateDelta(updates, Set.of()));
+    }
+
+    @Override
+    public Object get(Object key) {
+        for (PersistentStateMap map = this; map != null; map = map.parent) {
+            if (map.layer.containsKey(key)) {
+                Object value = map.layer.get(key);
+                return value == REMOVED ? null : value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        for (PersistentStateMap map = this; map != null; map = map.parent) {
+            if (map.layer.containsKey(key)) {
+                return map.layer.get(key) != REMOVED;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return materialize().entrySet();
+    }
+
+    private Map<String, Object> materialize() {
+        if (parent == null) return Collections.unmodifiableMap(layer);
+
+        Map<String, Object> view = flattened;
+        if (view == null) {
+            Map<String, Object> all = new HashMap<>(parent.materialize());
+            for (Map.Entry<String, Object> change : layer.entrySet()) {
+                if (change.getValue() == REMOVED) all.remove(change.getKey());
+                else all.put(change.getKey(), change.getValue());
+            }
+            view = Collections.unmodifiableMap(all);
+            flattened = view; // benign race: every thread computes the same content
+        }
+        return view;
+    }
+}
@@ -0,0 +1,77 @@
+package state;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * What changed between two versions of a state's data map.
+ * Values are compared by reference: a node that hands back the object it was given did not write it.
+ */
+public record StateDelta(Map<String, Object> updated, Set<String> removed) {
+    private static final StateDelta EMPTY = new StateDelta(Map.of(), Set.of());
+
+    // Visits every key of after; the keys of before only when some of them must be missing from after
+    public static StateDelta between(Map<String, Object> before, Map<String, Object> after) {
+        if (before == after) return EMPTY;
+
+        Map<String, Object> updated = new HashMap<>();
+        int added = 0;
+        for (Map.Entry<String, Object> entry : after.entrySet()) {
+            Object previous = before.get(entry.getKey());
+            if (previous == null && !before.containsKey(entry.getKey())) {
+                added++;
+                updated.put(entry.getKey(), entry.getValue());
+            } else if (previous != entry.getValue()) {
+                updated.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        Set<String> removed = null;
+        // after holds every key of before plus the added ones unless something was removed
+        if (after.size() < before.size() + added) {
+            for (String key : before.keySet()) {
+                if (!after.containsKey(key)) {
+                    if (removed == null) removed = new HashSet<>();
+                    removed.add(key);
+                }
+            }
+        }
+        return new StateDelta(updated, removed == null ? Set.of() : removed);
+    }
+
+    /**
+     * The change to persist so that {@code after} can be rebuilt from a stored {@code before}.
+     * Unlike {@link #between}, immutable values are compared with {@code equals} and every other
+     * value is always included: a node may have changed a list or map in place, which leaves the
+     * same object in both maps.
+     */
+    public static StateDelta durable(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> updated = new HashMap<>();
+        int added = 0;
+        for (Map.Entry<String, Object> entry : after.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            boolean existed = before.containsKey(key);
+            if (!existed) added++;
+            if (!existed || !StateValues.isImmutable(value) || !Objects.equals(before.get(key), value)) {
+                updated.put(key, value);
+            }
+        }
+
+        Set<String> removed = new HashSet<>();
+        // Every key of before is still there unless after is smaller than before plus the new keys
+        if (after.size() < before.size() + added) {
+            for (String key : before.keySet()) {
+                if (!after.containsKey(key)) removed.add(key);
+            }
+        }
+        return new StateDelta(updated, removed);
+    }
+
+    public boolean isEmpty() {
+        return updated.isEmpty() && removed.isEmpty();
+    }
+}
@@ -0,0 +1,64 @@
+package state;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges concurrent writes to the same state key.
+ * <p>
+ * At a parallel join the value of a key starts as the value it had before the fork and every
+ * branch that wrote the key is folded into it, in the order the branches were declared:
+ * {@code current = reduce(current, branchValue)}.
+ * </p>
+ */
+@FunctionalInterface
+public interface StateReducer<T> {
+    T reduce(T current, T update);
+
+    // Appends every element of each update, duplicates included.
+    // For branches that return only the items they added; a branch returning the full list would repeat it.
+    static <E> StateReducer<List<E>> append() {
+        return (current, update) -> {
+            if (current == null) return update == null ? null : new ArrayList<>(update);
+            if (update == null) return current;
+            List<E> merged = new ArrayList<>(current.size() + update.size());
+            merged.addAll(current);
+            merged.addAll(update);
+            return merged;
+        };
+    }
+
+    // Appends the elements of each update that are not already present, keeping first-seen order.
+    // Works whether a branch returns the full list or only the items it added; duplicates are lost.
+    static <E> StateReducer<List<E>> union() {
+        return (current, update) -> {
+            if (current == null) return update == null ? null : new ArrayList<>(new LinkedHashSet<>(update));
+            Set<E> merged = new LinkedHashSet<>(current);
+            if (update != null) merged.addAll(update);
+            return new ArrayList<>(merged);
+        };
+    }
+
+    static <E extends Comparable<? super E>> StateReducer<E> max() {
+        return (current, update) -> {
+            if (current == null) return update;
+            if (update == null) return current;
+            return update.compareTo(current) > 0 ? update : current;
+        };
+    }
+
+    static <E extends Comparable<? super E>> StateReducer<E> min() {
+        return (current, update) -> {
+            if (current == null) return update;
+            if (update == null) return current;
+            return update.compareTo(current) < 0 ? update : current;
+        };
+    }
+
+    // Explicitly accept the write of the branch declared last, whatever order they finished in
+    static <E> StateReducer<E> lastWins() {
+        return (current, update) -> update;
+    }
+}
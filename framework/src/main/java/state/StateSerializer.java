@@ -0,0 +1,33 @@
+package state;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes state data maps for persistence and transport (checkpoints, job results).
+ * <p>
+ * Implementations must round-trip maps, lists, strings, booleans, numbers and byte arrays;
+ * other values may come back in a generic form (maps and lists), as with a JSON mapper.
+ * Per-step persistence should write only the step's {@link StateDelta} and keep full maps
+ * for the first step of a run and for compaction.
+ * </p>
+ */
+public interface StateSerializer {
+
+    byte[] write(Map<String, Object> data);
+
+    Map<String, Object> read(byte[] bytes);
+
+    default byte[] writeDelta(StateDelta delta) {
+        return write(Map.of("updated", delta.updated(), "removed", List.copyOf(delta.removed())));
+    }
+
+    @SuppressWarnings("unchecked")
+    default StateDelta readDelta(byte[] bytes) {
+        Map<String, Object> encoded = read(bytes);
+        return new StateDelta(
+                (Map<String, Object>) encoded.get("updated"),
+                new HashSet<>((List<String>) encoded.get("removed")));
+    }
+}
@@ -0,0 +1,61 @@
+package state;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which state values can be shared safely, and copies of those that cannot.
+ * <p>
+ * Scalars, strings and enums never change, so holding the same object is enough. Lists, sets
+ * and maps may be changed in place by whoever holds them and are copied, nested ones included.
+ * Any other object is shared as it is: nodes must not change such values in place.
+ * </p>
+ */
+public final class StateValues {
+
+    private StateValues() {
+    }
+
+    public static boolean isImmutable(Object value) {
+        return value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Float
+                || value instanceof Short || value instanceof Byte || value instanceof BigInteger
+                || value instanceof BigDecimal || value instanceof Enum<?>;
+    }
+
+    // The data map with every list, set and map value copied, so changing them in place affects only the copy
+    public static Map<String, Object> copyContainers(Map<String, Object> data) {
+        Map<String, Object> copy = new LinkedHashMap<>(data.size() * 4 / 3 + 1);
+        data.forEach((key, value) -> copy.put(key, copy(value)));
+        return copy;
+    }
+
+    private static Object copy(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+            map.forEach((key, element) -> copy.put(key, copy(element)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            return copyInto(new ArrayList<>(list.size()), list);
+        }
+        if (value instanceof Set<?> set) {
+            return copyInto(new LinkedHashSet<>(set.size() * 4 / 3 + 1), set);
+        }
+        return value;
+    }
+
+    private static <C extends Collection<Object>> C copyInto(C target, Collection<?> source) {
+        for (Object element : source) {
+            target.add(copy(element));
+        }
+        return target;
+    }
+}
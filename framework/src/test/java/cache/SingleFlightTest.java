@@ -0,0 +1,47 @@
+package cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneCall() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> call = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> first = singleFlight.execute("k", () -> { calls.incrementAndGet(); return call; });
+        CompletableFuture<String> second = singleFlight.execute("k", () -> { calls.incrementAndGet(); return call; });
+        call.complete("answer");
+
+        assertThat(first.join()).isEqualTo("answer");
+        assertThat(second.join()).isEqualTo("answer");
+        assertThat(calls).hasValue(1);
+        assertThat(singleFlight.coalescedCount()).isEqualTo(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void aCallerThatMissedTheCacheTakesTheResultStoredMeanwhile() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        BoundedCache<String, String> cache = new BoundedCache<>(10, Duration.ofMinutes(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        // This caller looked in the cache before the previous call stored its result and released the key
+        assertThat(cache.get("k")).isNull();
+        cache.put("k", "stored");
+        CompletableFuture<String> result = singleFlight.execute("k", () -> cache.peek("k"),
+                () -> CompletableFuture.completedFuture("again " + calls.incrementAndGet()));
+
+        assertThat(result.join()).isEqualTo("stored");
+        assertThat(calls).hasValue(0);
+        assertThat(singleFlight.inFlightCount()).isZero();
+        assertThat(cache.stats().misses()).isEqualTo(1);
+    }
+}
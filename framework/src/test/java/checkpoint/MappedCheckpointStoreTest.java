@@ -0,0 +1,158 @@
+package checkpoint;
+
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import state.BinaryStateSerializer;
+import state.JacksonStateSerializer;
+import state.StateSerializer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedCheckpointStoreTest {
+    private static final RunnableConfig RUN = RunnableConfig.builder().threadId("run-1").build();
+
+    @TempDir
+    Path directory;
+
+    private MappedCheckpointStore open(StateSerializer serializer) {
+        return new MappedCheckpointStore(directory, 1 << 20, Duration.ofHours(1), 2, serializer);
+    }
+
+    private static Checkpoint checkpoint(String id, String node, Map<String, Object> state) {
+        return Checkpoint.builder().id(id).nodeId(node).nextNodeId("next-" + node).state(state).build();
+    }
+
+    private static Map<String, Object> state(Object... keyValues) {
+        Map<String, Object> state = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            state.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return state;
+    }
+
+    @Test
+    void replaysDeltaRecordsAfterRestart() throws Exception {
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            store.recordRun("run-1", "kyc", "1.0.0");
+            store.put(RUN, checkpoint("c1", "a", state("input", "hello", "count", 1)));
+            store.put(RUN, checkpoint("c2", "b", state("input", "hello", "count", 2, "draft", "text")));
+            store.put(RUN, checkpoint("c3", "c", state("count", 3, "draft", "text", "answer", 42L)));
+        }
+
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            List<Checkpoint> checkpoints = List.copyOf(store.list(RUN));
+
+            assertThat(checkpoints).extracting(Checkpoint::getId).containsExactly("c3", "c2", "c1");
+            assertThat(checkpoints.get(0).getState()).isEqualTo(state("count", 3, "draft", "text", "answer", 42L));
+            assertThat(checkpoints.get(1).getState()).isEqualTo(state("input", "hello", "count", 2, "draft", "text"));
+            assertThat(checkpoints.get(2).getState()).isEqualTo(state("input", "hello", "count", 1));
+            assertThat(checkpoints.get(0).getNodeId()).isEqualTo("c");
+            assertThat(checkpoints.get(0).getNextNodeId()).isEqualTo("next-c");
+            assertThat(store.findRun("run-1")).contains(new CheckpointStore.RunInfo("run-1", "kyc", "1.0.0"));
+        }
+    }
+
+    @Test
+    void persistsContainersChangedInPlace() throws Exception {
+        List<Object> findings = new ArrayList<>(List.of("first"));
+        Map<String, Object> scores = new HashMap<>(Map.of("risk", 1));
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            store.put(RUN, checkpoint("c1", "a", state("findings", findings, "scores", scores)));
+            store.put(RUN, checkpoint("c2", "b", state("findings", findings, "scores", scores, "step", 2)));
+            // The next node appends to the same list and map instead of replacing them
+            findings.add("second");
+            scores.put("risk", 5);
+            store.put(RUN, checkpoint("c3", "c", state("findings", findings, "scores", scores, "step", 3)));
+        }
+
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            Map<String, Object> latest = store.get(RUN).orElseThrow().getState();
+
+            assertThat(latest.get("findings")).isEqualTo(List.of("first", "second"));
+            assertThat(latest.get("scores")).isEqualTo(Map.of("risk", 5));
+            assertThat(latest).containsEntry("step", 3);
+        }
+    }
+
+    @Test
+    void replaysCheckpointsUpdatedInPlace() throws Exception {
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            store.put(RUN, checkpoint("c1", "a", state("count", 1)));
+            store.put(RUN, checkpoint("c2", "b", state("count", 2)));
+            // Same id: LangGraph rewrote the newest checkpoint
+            store.put(RUN, checkpoint("c2", "b", state("count", 2, "extra", true)));
+            store.put(RUN, checkpoint("c3", "c", state("count", 3, "extra", true)));
+        }
+
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            List<Checkpoint> checkpoints = List.copyOf(store.list(RUN));
+
+            assertThat(checkpoints).extracting(Checkpoint::getId).containsExactly("c3", "c2", "c1");
+            assertThat(checkpoints.get(0).getState()).isEqualTo(state("count", 3, "extra", true));
+            assertThat(checkpoints.get(1).getState()).isEqualTo(state("count", 2, "extra", true));
+        }
+    }
+
+    @Test
+    void clearedRunsStayClearedAfterRestart() throws Exception {
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            store.recordRun("run-1", "kyc", "1.0.0");
+            store.put(RUN, checkpoint("c1", "a", state("count", 1)));
+            store.put(RUN, checkpoint("c2", "b", state("count", 2)));
+            assertThat(store.clear(RUN)).isTrue();
+        }
+
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            assertThat(store.get(RUN)).isEmpty();
+            assertThat(store.findRun("run-1")).isEmpty();
+        }
+    }
+
+    @Test
+    void expiresRunsIdleForLongerThanTheRetention() throws Exception {
+        RunnableConfig recent = RunnableConfig.builder().threadId("run-2").build();
+        try (MappedCheckpointStore store = new MappedCheckpointStore(directory, 1 << 20, Duration.ofHours(1), 2,
+                new BinaryStateSerializer(), Duration.ofMillis(200))) {
+            store.recordRun("run-1", "kyc", "1.0.0");
+            store.put(RUN, checkpoint("c1", "a", state("count", 1)));
+            Thread.sleep(300);
+            store.put(recent, checkpoint("c1", "a", state("count", 1)));
+
+            assertThat(store.expire()).isEqualTo(1);
+            assertThat(store.get(RUN)).isEmpty();
+            assertThat(store.findRun("run-1")).isEmpty();
+            assertThat(store.get(recent)).isPresent();
+        }
+
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            assertThat(store.get(RUN)).isEmpty();
+            assertThat(store.get(recent)).isPresent();
+        }
+    }
+
+    @Test
+    void readsLogsWrittenAsJson() throws Exception {
+        try (MappedCheckpointStore store = open(new JacksonStateSerializer())) {
+            store.put(RUN, checkpoint("c1", "a", state("count", 1)));
+            store.put(RUN, checkpoint("c2", "b", state("count", 2, "draft", "text")));
+        }
+
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            assertThat(store.get(RUN).orElseThrow().getState()).isEqualTo(state("count", 2, "draft", "text"));
+            store.put(RUN, checkpoint("c3", "c", state("count", 3, "draft", "text")));
+        }
+
+        try (MappedCheckpointStore store = open(new BinaryStateSerializer())) {
+            assertThat(store.get(RUN).orElseThrow().getState()).isEqualTo(state("count", 3, "draft", "text"));
+        }
+    }
+}
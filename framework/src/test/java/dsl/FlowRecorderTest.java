@@ -0,0 +1,115 @@
+package dsl;
+
+import node.AgentRouter;
+import node.DeltaAgentNode;
+import node.Memoized;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import state.AgentState;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.bsc.langgraph4j.GraphDefinition.END;
+import static org.bsc.langgraph4j.GraphDefinition.START;
+
+class FlowRecorderTest {
+
+    static class TestState extends AgentState {
+        public TestState(Map<String, Object> initData) {
+            super(initData);
+        }
+    }
+
+    static class Intake implements DeltaAgentNode<TestState> {
+        @Override public Map<String, Object> update(TestState state) { return Map.of(); }
+    }
+
+    static class Review implements DeltaAgentNode<TestState> {
+        @Override public Map<String, Object> update(TestState state) { return Map.of(); }
+    }
+
+    static class Approve implements DeltaAgentNode<TestState> {
+        @Override public Map<String, Object> update(TestState state) { return Map.of(); }
+    }
+
+    static class Notify implements DeltaAgentNode<TestState> {
+        @Override public Map<String, Object> update(TestState state) { return Map.of(); }
+    }
+
+    @Memoized
+    static class Forgetful implements DeltaAgentNode<TestState> {
+        @Override public Map<String, Object> update(TestState state) { return Map.of(); }
+    }
+
+    static class Risk implements AgentRouter<TestState> {
+        @Override public String route(TestState state) { return "low"; }
+    }
+
+    private static WorkflowDefinition<TestState> workflow(Consumer<FlowBuilder<TestState>> definition) {
+        return new WorkflowDefinition<>() {
+            @Override public String getWorkflowId() { return "review"; }
+            @Override public String getVersion() { return "1.0.0"; }
+            @Override public void define(FlowBuilder<TestState> builder) { definition.accept(builder); }
+            @Override public Class<TestState> getStateType() { return TestState.class; }
+        };
+    }
+
+    private static DefaultListableBeanFactory beans(Class<?>... types) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        for (Class<?> type : types) {
+            beanFactory.registerBeanDefinition(type.getSimpleName(), new RootBeanDefinition(type));
+        }
+        return beanFactory;
+    }
+
+    @Test
+    void recordsTheClassesAndEdgesOfTheGraphWithoutCreatingBeans() {
+        DefaultListableBeanFactory beanFactory = beans(Intake.class, Review.class, Approve.class, Notify.class, Risk.class);
+
+        FlowRecorder.Recording recording = FlowRecorder.record(workflow(builder -> builder
+                .startWith(Intake.class)
+                .choice(Risk.class).when("high", Review.class).when("low", Approve.class).endRouting()
+                .next(Notify.class)), beanFactory);
+
+        assertThat(recording.components())
+                .containsExactly(Intake.class, Risk.class, Review.class, Approve.class, Notify.class);
+        assertThat(recording.topology()).isEqualTo(new WorkflowTopology("review", "1.0.0", List.of(
+                START + " -> Intake",
+                "Intake -[high]-> Review",
+                "Intake -[low]-> Approve",
+                "Review -> Notify",
+                "Approve -> Notify",
+                "Notify -> " + END)));
+        assertThat(beanFactory.getSingletonCount()).isZero();
+    }
+
+    @Test
+    void failsOnAClassWithoutABean() {
+        assertThatThrownBy(() -> FlowRecorder.record(workflow(builder -> builder
+                .startWith(Intake.class)
+                .next(Notify.class)), beans(Intake.class)))
+                .isInstanceOf(NoSuchBeanDefinitionException.class);
+    }
+
+    @Test
+    void failsOnAMemoizedNodeWithoutReads() {
+        assertThatThrownBy(() -> FlowRecorder.record(workflow(builder -> builder
+                .startWith(Forgetful.class)), beans(Forgetful.class)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("@Reads");
+    }
+
+    @Test
+    void failsOnANodeAddedTwice() {
+        assertThatThrownBy(() -> FlowRecorder.record(workflow(builder -> builder
+                .startWith(Intake.class)
+                .next(Intake.class)), beans(Intake.class)))
+                .isInstanceOf(RuntimeException.class);
+    }
+}
@@ -0,0 +1,66 @@
+package dsl;
+
+import node.BatchAgentNode;
+import org.junit.jupiter.api.Test;
+import state.AgentState;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MicroBatcherTest {
+
+    static class TestState extends AgentState {
+        public TestState(Map<String, Object> initData) {
+            super(initData);
+        }
+    }
+
+    // Echoes each state's input and notes the thread and size of every batch
+    static class Echo implements BatchAgentNode<TestState> {
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        final List<Integer> sizes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public List<Map<String, Object>> executeBatch(List<TestState> states) {
+            threads.add(Thread.currentThread().getName());
+            sizes.add(states.size());
+            List<Map<String, Object>> updates = new ArrayList<>();
+            for (TestState state : states) updates.add(Map.of("output", state.data().get("input")));
+            return updates;
+        }
+
+        @Override
+        public int maxBatchSize() {
+            return 3;
+        }
+
+        @Override
+        public Duration maxDelay() {
+            return Duration.ofMillis(20);
+        }
+    }
+
+    @Test
+    void fullBatchesAndTimerFlushesRunOnTheirOwnThreads() {
+        Echo node = new Echo();
+        MicroBatcher<TestState> batcher = new MicroBatcher<>("Echo", node);
+
+        List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(batcher.submit(new TestState(Map.of("input", i))));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(results.get(i).join()).containsEntry("output", i);
+        }
+        assertThat(node.sizes).containsExactly(3, 1);
+        // The second batch was flushed by the timer, yet did not run on it
+        assertThat(node.threads).allMatch(thread -> thread.equals("batch-Echo"));
+    }
+}
@@ -0,0 +1,64 @@
+package dsl;
+
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import org.junit.jupiter.api.Test;
+import state.AgentState;
+import state.StateReducer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelNodeTest {
+
+    static class TestState extends AgentState {
+        public TestState(Map<String, Object> initData) {
+            super(initData);
+        }
+    }
+
+    // Adds to the list it was given and hands the whole state back
+    @SuppressWarnings("unchecked")
+    private static AsyncNodeAction<TestState> adding(String item) {
+        return state -> {
+            ((List<Object>) state.data().get("items")).add(item);
+            return CompletableFuture.completedFuture(state.data());
+        };
+    }
+
+    private static Map<String, Object> input() {
+        Map<String, Object> input = new HashMap<>();
+        input.put("items", new ArrayList<>(List.of("start")));
+        input.put("untouched", new ArrayList<>(List.of("x")));
+        return input;
+    }
+
+    @Test
+    void branchesChangingAListInPlaceEachGetTheirOwnCopy() {
+        Map<String, Object> input = input();
+        ParallelNode<TestState> node = new ParallelNode<>(List.of("a", "b"), List.of(adding("a"), adding("b")),
+                Map.of("items", StateReducer.union()), TestState::new, 2);
+
+        Map<String, Object> update = node.apply(new TestState(input)).join();
+
+        assertThat(update.get("items")).isEqualTo(List.of("start", "a", "b"));
+        assertThat(update).doesNotContainKey("untouched");
+        assertThat(input.get("items")).isEqualTo(List.of("start"));
+    }
+
+    @Test
+    void aListChangedInPlaceByOneBranchIsAWrite() {
+        AsyncNodeAction<TestState> reader = state -> CompletableFuture.completedFuture(state.data());
+        ParallelNode<TestState> node = new ParallelNode<>(List.of("a", "reader"), List.of(adding("a"), reader),
+                Map.of(), TestState::new, 1);
+
+        Map<String, Object> update = node.apply(new TestState(input())).join();
+
+        assertThat(update).containsOnlyKeys("items");
+        assertThat(update.get("items")).isEqualTo(List.of("start", "a"));
+    }
+}
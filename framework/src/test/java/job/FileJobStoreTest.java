@@ -0,0 +1,72 @@
+package job;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import state.BinaryStateSerializer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileJobStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void jobsSurviveRestart() {
+        FileJobStore store = new FileJobStore(directory, new BinaryStateSerializer());
+        store.save(JobRecord.queued("run-1", "kyc", Map.of("input", "hello")));
+
+        FileJobStore reopened = new FileJobStore(directory, new BinaryStateSerializer());
+
+        assertThat(reopened.unfinished()).extracting(JobRecord::runId).containsExactly("run-1");
+        assertThat(reopened.find("run-1").orElseThrow().input()).isEqualTo(Map.of("input", "hello"));
+    }
+
+    @Test
+    void replaceOnlySucceedsFromTheExpectedRecord() {
+        FileJobStore store = new FileJobStore(directory, new BinaryStateSerializer());
+        JobRecord queued = JobRecord.queued("run-1", "kyc", Map.of());
+        store.insert(queued);
+        JobRecord claimed = queued.running();
+
+        assertThat(store.replace(queued, claimed)).isTrue();
+        // A second worker holding the same queued record loses
+        assertThat(store.replace(queued, queued.running())).isFalse();
+        assertThat(new FileJobStore(directory, new BinaryStateSerializer()).find("run-1")).contains(claimed);
+    }
+
+    @Test
+    void migratesJobFilesOfTheJsonFormat() throws Exception {
+        Files.writeString(directory.resolve("run-1.json"), """
+                {"run":"run-1","workflow":"kyc","status":"RUNNING","submitted":1700000000000,
+                 "updated":1700000001000,"input":{"input":"hello"},"result":null,"error":null}""");
+
+        FileJobStore store = new FileJobStore(directory, new BinaryStateSerializer());
+
+        JobRecord job = store.find("run-1").orElseThrow();
+        assertThat(job.status()).isEqualTo(JobStatus.RUNNING);
+        assertThat(job.submittedAt().toEpochMilli()).isEqualTo(1700000000000L);
+        assertThat(job.input()).isEqualTo(Map.of("input", "hello"));
+        assertThat(directory.resolve("run-1.json")).doesNotExist();
+        assertThat(directory.resolve("run-1.job")).exists();
+        assertThat(new FileJobStore(directory, new BinaryStateSerializer()).unfinished()).containsExactly(job);
+    }
+
+    @Test
+    void newerFormatWinsOverALeftoverJsonFile() throws Exception {
+        FileJobStore store = new FileJobStore(directory, new BinaryStateSerializer());
+        store.save(JobRecord.queued("run-1", "kyc", Map.of()).succeeded(Map.of("answer", "done")));
+        Files.writeString(directory.resolve("run-1.json"), """
+                {"run":"run-1","workflow":"kyc","status":"QUEUED","submitted":1,"updated":1,
+                 "input":{},"result":null,"error":null}""");
+
+        FileJobStore reopened = new FileJobStore(directory, new BinaryStateSerializer());
+
+        assertThat(reopened.find("run-1").orElseThrow().status()).isEqualTo(JobStatus.SUCCEEDED);
+        assertThat(directory.resolve("run-1.json")).doesNotExist();
+    }
+}
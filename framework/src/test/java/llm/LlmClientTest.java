@@ -0,0 +1,64 @@
+package llm;
+
+import cache.BoundedCache;
+import cache.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LlmClientTest {
+
+    @Test
+    void interruptingTheCallerThatStartedASharedCallDoesNotFailTheOthers() throws Exception {
+        CountDownLatch modelStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger modelCalls = new AtomicInteger();
+        ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+        when(chatClient.prompt().user(anyString()).call().content()).thenAnswer(invocation -> {
+            modelCalls.incrementAndGet();
+            modelStarted.countDown();
+            release.await();
+            return "answer";
+        });
+        SingleFlight<LlmCacheKey, String> singleFlight = new SingleFlight<>();
+        LlmClient client = new LlmClient(chatClient, null, "", new BoundedCache<>(100, Duration.ofMinutes(1)),
+                singleFlight, Set.of(), null, null, new SimpleMeterRegistry());
+        LlmRequest request = LlmRequest.of("chat", "hello");
+
+        AtomicReference<Throwable> leaderError = new AtomicReference<>();
+        Thread leader = Thread.ofVirtual().start(() -> {
+            try {
+                client.call(request);
+            } catch (Throwable t) {
+                leaderError.set(t);
+            }
+        });
+        modelStarted.await();
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> client.call(request));
+        while (singleFlight.coalescedCount() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // The caller that started the call gives up, e.g. because its run was cancelled
+        leader.interrupt();
+        leader.join();
+        release.countDown();
+
+        assertThat(leaderError.get()).isInstanceOf(IllegalStateException.class);
+        assertThat(follower.get()).isEqualTo("answer");
+        assertThat(modelCalls).hasValue(1);
+    }
+}
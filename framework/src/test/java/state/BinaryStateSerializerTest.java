@@ -0,0 +1,210 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryStateSerializerTest {
+    private static final int THRESHOLD = 64;
+
+    private final BinaryStateSerializer serializer = new BinaryStateSerializer(THRESHOLD);
+
+    enum Colour { RED }
+
+    record Point(int x, int y) {}
+
+    private Map<String, Object> roundTrip(Map<String, Object> data) {
+        return serializer.read(serializer.write(data));
+    }
+
+    @Test
+    void scalarsKeepTheirTypes() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("null", null);
+        data.put("false", false);
+        data.put("true", true);
+        data.put("int", 1);
+        data.put("long", 1L);
+        data.put("intMin", Integer.MIN_VALUE);
+        data.put("longMax", Long.MAX_VALUE);
+        data.put("longMin", Long.MIN_VALUE);
+        data.put("negative", -42);
+        data.put("double", 0.1);
+        data.put("negativeZero", -0.0);
+        data.put("nan", Double.NaN);
+        data.put("float", 1.5f);
+        data.put("string", "héllo ✓");
+        data.put("empty", "");
+
+        Map<String, Object> read = roundTrip(data);
+
+        assertThat(read).isEqualTo(data);
+        assertThat(read).containsKey("null");
+        assertThat(read.get("int")).isInstanceOf(Integer.class);
+        assertThat(read.get("long")).isInstanceOf(Long.class);
+        assertThat(read.get("float")).isInstanceOf(Float.class);
+        assertThat(read.get("double")).isInstanceOf(Double.class);
+        assertThat(Double.doubleToRawLongBits((Double) read.get("negativeZero")))
+                .isEqualTo(Double.doubleToRawLongBits(-0.0));
+    }
+
+    @Test
+    void narrowIntegersAndEnumsComeBackInGenericForm() {
+        Map<String, Object> read = roundTrip(Map.of("short", (short) 7, "byte", (byte) -3, "colour", Colour.RED));
+
+        assertThat(read).containsEntry("short", 7).containsEntry("byte", -3).containsEntry("colour", "RED");
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        byte[] bytes = {0, 1, -1, 127, -128};
+
+        Map<String, Object> read = roundTrip(Map.of("bytes", bytes, "none", new byte[0]));
+
+        assertThat((byte[]) read.get("bytes")).containsExactly(bytes);
+        assertThat((byte[]) read.get("none")).isEmpty();
+    }
+
+    @Test
+    void nestedMapsAndListsRoundTrip() {
+        Map<String, Object> inner = new HashMap<>();
+        inner.put("list", List.of(1, 2L, "three", List.of(), Map.of()));
+        inner.put("nothing", null);
+        List<Object> withNull = new ArrayList<>();
+        withNull.add(null);
+        withNull.add(Map.of("deep", Map.of("deeper", List.of(true))));
+        Map<String, Object> data = Map.of("outer", inner, "mixed", withNull);
+
+        assertThat(roundTrip(data)).isEqualTo(data);
+    }
+
+    @Test
+    void setsAndArraysComeBackAsLists() {
+        Set<String> set = new LinkedHashSet<>(List.of("a", "b"));
+
+        Map<String, Object> read = roundTrip(Map.of("set", set, "array", new Object[]{"x", 1}));
+
+        assertThat(read.get("set")).isEqualTo(List.of("a", "b"));
+        assertThat(read.get("array")).isEqualTo(List.of("x", 1));
+    }
+
+    @Test
+    void repeatedKeysAreWrittenOnce() {
+        List<Object> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(Map.of("customerIdentifier", i, "registeredAddressLine", "street " + i));
+        }
+        Map<String, Object> data = Map.of("records", records);
+
+        byte[] encoded = serializer.write(data);
+
+        assertThat(serializer.read(encoded)).isEqualTo(data);
+        // 100 x 39 bytes of key names if they were not interned
+        assertThat(encoded.length).isLessThan(100 * 39);
+    }
+
+    @Test
+    void stringsBelowTheThresholdAreStoredAsIs() {
+        String below = "a".repeat(THRESHOLD - 1);
+
+        byte[] encoded = serializer.write(Map.of("s", below));
+
+        assertThat(encoded.length).isGreaterThan(THRESHOLD - 1);
+        assertThat(serializer.read(encoded)).containsEntry("s", below);
+    }
+
+    @Test
+    void compressibleStringsAtTheThresholdAreDeflated() {
+        String atThreshold = "a".repeat(THRESHOLD);
+        String large = "lorem ipsum dolor sit amet ".repeat(1_000);
+
+        byte[] encodedAt = serializer.write(Map.of("s", atThreshold));
+        byte[] encodedLarge = serializer.write(Map.of("s", large));
+
+        assertThat(encodedAt.length).isLessThan(THRESHOLD);
+        assertThat(encodedLarge.length).isLessThan(large.length() / 10);
+        assertThat(serializer.read(encodedAt)).containsEntry("s", atThreshold);
+        assertThat(serializer.read(encodedLarge)).containsEntry("s", large);
+    }
+
+    @Test
+    void thresholdCountsUtf8Bytes() {
+        // 32 characters, 64 bytes
+        String multiByte = "é".repeat(THRESHOLD / 2);
+        assertThat(multiByte.getBytes(StandardCharsets.UTF_8)).hasSize(THRESHOLD);
+
+        byte[] encoded = serializer.write(Map.of("s", multiByte));
+
+        assertThat(encoded.length).isLessThan(THRESHOLD);
+        assertThat(serializer.read(encoded)).containsEntry("s", multiByte);
+    }
+
+    @Test
+    void incompressibleStringsAboveTheThresholdRoundTrip() {
+        Random random = new Random(7);
+        StringBuilder noise = new StringBuilder();
+        for (int i = 0; i < THRESHOLD * 4; i++) {
+            noise.append((char) (0x21 + random.nextInt(94)));
+        }
+        String incompressible = noise.toString();
+
+        assertThat(roundTrip(Map.of("s", incompressible))).containsEntry("s", incompressible);
+    }
+
+    @Test
+    void compressionCanBeDisabled() {
+        BinaryStateSerializer uncompressed = new BinaryStateSerializer(0);
+        String large = "a".repeat(10_000);
+
+        byte[] encoded = uncompressed.write(Map.of("s", large));
+
+        assertThat(encoded.length).isGreaterThan(10_000);
+        assertThat(uncompressed.read(encoded)).containsEntry("s", large);
+    }
+
+    @Test
+    void otherValuesFallBackToJsonInGenericForm() {
+        Map<String, Object> read = roundTrip(Map.of("point", new Point(1, 2), "points", List.of(new Point(3, 4))));
+
+        assertThat(read.get("point")).isEqualTo(Map.of("x", 1, "y", 2));
+        assertThat(read.get("points")).isEqualTo(List.of(Map.of("x", 3, "y", 4)));
+    }
+
+    @Test
+    void fallbackMatchesTheJsonSerializer() {
+        Map<String, Object> data = Map.of("point", new Point(5, 6));
+
+        assertThat(roundTrip(data)).isEqualTo(new JacksonStateSerializer().read(new JacksonStateSerializer().write(data)));
+    }
+
+    @Test
+    void deltasRoundTrip() {
+        Map<String, Object> updated = new HashMap<>();
+        updated.put("answer", 42L);
+        updated.put("cleared", null);
+        StateDelta delta = new StateDelta(updated, Set.of("gone", "also-gone"));
+
+        StateDelta read = serializer.readDelta(serializer.writeDelta(delta));
+
+        assertThat(read.updated()).isEqualTo(updated);
+        assertThat(read.removed()).containsExactlyInAnyOrder("gone", "also-gone");
+    }
+
+    @Test
+    void rejectsPayloadsOfOtherFormats() {
+        byte[] json = new JacksonStateSerializer().write(Map.of("a", 1));
+
+        assertThatThrownBy(() -> serializer.read(json)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> serializer.read(new byte[0])).isInstanceOf(IllegalArgumentException.class);
+    }
+}
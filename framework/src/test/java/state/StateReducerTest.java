@@ -0,0 +1,35 @@
+package state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StateReducerTest {
+
+    @Test
+    void appendKeepsDuplicates() {
+        StateReducer<List<String>> append = StateReducer.append();
+
+        assertThat(append.reduce(List.of("a", "b"), List.of("b", "b"))).containsExactly("a", "b", "b", "b");
+        assertThat(append.reduce(null, List.of("a"))).containsExactly("a");
+        assertThat(append.reduce(List.of("a"), null)).containsExactly("a");
+    }
+
+    @Test
+    void unionKeepsFirstSeenOrderWithoutDuplicates() {
+        StateReducer<List<String>> union = StateReducer.union();
+
+        // A branch that returned the full list adds only what is new
+        assertThat(union.reduce(List.of("a", "b"), List.of("a", "b", "c"))).containsExactly("a", "b", "c");
+        assertThat(union.reduce(null, List.of("x", "x", "y"))).containsExactly("x", "y");
+    }
+
+    @Test
+    void lastWinsTakesTheLaterFold() {
+        StateReducer<String> lastWins = StateReducer.lastWins();
+
+        assertThat(lastWins.reduce(lastWins.reduce("before", "first"), "second")).isEqualTo("second");
+    }
+}
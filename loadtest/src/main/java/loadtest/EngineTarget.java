@@ -0,0 +1,69 @@
+package loadtest;
+
+import admission.OverloadException;
+import engine.WorkflowEngine;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots {@link LoadTestApplication} in this JVM with the fake model and calls
+ * {@code WorkflowEngine.run} directly, so the numbers are the framework's without HTTP on top.
+ */
+final class EngineTarget implements LoadTarget {
+    // Defaults ahead of the user's arguments, which can still override them
+    private static final List<String> DEFAULTS = List.of(
+            "--agent.fake-gemini.enabled=true",
+            "--spring.ai.model.chat=none",
+            "--agent.llm.system-prompt=You are a helpful assistant.");
+
+    private final ConfigurableApplicationContext context;
+    private final WorkflowEngine engine;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    EngineTarget(List<String> springArgs) {
+        List<String> args = new ArrayList<>(DEFAULTS);
+        args.addAll(springArgs);
+        SpringApplication application = new SpringApplication(LoadTestApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        this.context = application.run(args.toArray(String[]::new));
+        this.engine = context.getBean(WorkflowEngine.class);
+    }
+
+    @Override
+    public Outcome call(int session, long turn) {
+        String input = "Load test session " + session + ", turn " + turn;
+        try {
+            engine.run(LoadTestApplication.WORKFLOW_ID, new LoadTestApplication.LoadState(Map.of("input", input)));
+            return Outcome.OK;
+        } catch (RuntimeException e) {
+            return isOverload(e) ? Outcome.REJECTED : Outcome.ERROR;
+        }
+    }
+
+    // Rate-limit rejections from inside a node arrive wrapped by the graph runtime
+    private static boolean isOverload(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof OverloadException) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Resources resources() {
+        return new Resources(threads.getThreadCount(), memory.getHeapMemoryUsage().getUsed());
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,24 @@
+package loadtest;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Replaces the Gemini model with {@link FakeGeminiChatModel} when
+ * {@code agent.fake-gemini.enabled=true}. Set {@code spring.ai.model.chat=none} as well, so the
+ * Vertex starter does not try to reach Google for credentials at startup.
+ */
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "agent.fake-gemini", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(FakeGeminiProperties.class)
+public class FakeGeminiAutoConfiguration {
+
+    @Bean
+    @Primary
+    public FakeGeminiChatModel fakeGeminiChatModel(FakeGeminiProperties properties) {
+        return new FakeGeminiChatModel(properties);
+    }
+}
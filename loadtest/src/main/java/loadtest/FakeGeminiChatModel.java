@@ -0,0 +1,96 @@
+package loadtest;
+
+import admission.OverloadException;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stand-in for the Vertex Gemini model, so load tests spend no quota.
+ * <p>
+ * Blocking calls sleep for a latency drawn from the configured distribution; streams wait for
+ * the first-token latency and then emit one token at a time at {@code tokensPerSecond}. The
+ * response is {@code responseTokens} tokens of filler, sized so {@code llm.Tokens} counts them
+ * the same way. A configurable share of calls fails with a generic error, or is rejected for
+ * quota. The framework does not translate the real provider's quota errors, so the rejection is
+ * the {@link OverloadException} its own LLM rate limiter raises, which the web layer turns into
+ * a 429.
+ * </p>
+ */
+public class FakeGeminiChatModel implements ChatModel {
+    // Four characters each, one token by the framework's estimate
+    private static final String[] WORDS = {"the ", "and ", "for ", "was ", "not ", "but ", "are ", "one "};
+    // Retry-After of an injected quota rejection
+    private static final Duration QUOTA_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final FakeGeminiProperties properties;
+    private final LatencyDistribution latency;
+    private final LongAdder calls = new LongAdder();
+
+    public FakeGeminiChatModel(FakeGeminiProperties properties) {
+        this.properties = properties;
+        this.latency = properties.distribution();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        calls.increment();
+        try {
+            Thread.sleep(latency.sample(ThreadLocalRandom.current()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Fake model call interrupted");
+        }
+        failIfInjected();
+        return response(text(properties.getResponseTokens()));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        calls.increment();
+        int tokens = properties.getResponseTokens();
+        Duration perToken = Duration.ofNanos(1_000_000_000L / Math.max(1, properties.getTokensPerSecond()));
+        return Flux.defer(() -> {
+            failIfInjected();
+            return Flux.interval(properties.getFirstTokenLatency(), perToken)
+                    .take(tokens)
+                    .map(i -> response(WORDS[(int) (i % WORDS.length)]));
+        });
+    }
+
+    // Calls received so far, to check the driver's numbers against what reached the model
+    public long callCount() {
+        return calls.sum();
+    }
+
+    private void failIfInjected() {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < properties.getRateLimitRate()) {
+            throw new OverloadException("llm", QUOTA_RETRY_AFTER, "Injected model quota exhaustion");
+        }
+        if (roll < properties.getRateLimitRate() + properties.getErrorRate()) {
+            throw new IllegalStateException("Injected model failure");
+        }
+    }
+
+    private static String text(int tokens) {
+        StringBuilder text = new StringBuilder(tokens * 4);
+        for (int i = 0; i < tokens; i++) {
+            text.append(WORDS[i % WORDS.length]);
+        }
+        return text.toString();
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}
@@ -0,0 +1,55 @@
+package loadtest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Behaviour of the fake model, bound from {@code agent.fake-gemini.*}.
+ */
+@ConfigurationProperties(prefix = "agent.fake-gemini")
+public class FakeGeminiProperties {
+    private boolean enabled = false;
+    private LatencyDistribution.Shape latency = LatencyDistribution.Shape.LOGNORMAL;
+    // Whole-response latency of blocking calls
+    private Duration latencyMedian = Duration.ofMillis(800);
+    private Duration latencyP99 = Duration.ofSeconds(3);
+    // Streaming: delay before the first token, then a steady token rate
+    private Duration firstTokenLatency = Duration.ofMillis(300);
+    private int tokensPerSecond = 50;
+    private int responseTokens = 150;
+    // Fractions of calls that fail, as a generic error or as a quota rejection (OverloadException)
+    private double errorRate = 0.0;
+    private double rateLimitRate = 0.0;
+
+    public LatencyDistribution distribution() {
+        return new LatencyDistribution(latency, latencyMedian, latencyP99);
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public LatencyDistribution.Shape getLatency() { return latency; }
+    public void setLatency(LatencyDistribution.Shape latency) { this.latency = latency; }
+
+    public Duration getLatencyMedian() { return latencyMedian; }
+    public void setLatencyMedian(Duration latencyMedian) { this.latencyMedian = latencyMedian; }
+
+    public Duration getLatencyP99() { return latencyP99; }
+    public void setLatencyP99(Duration latencyP99) { this.latencyP99 = latencyP99; }
+
+    public Duration getFirstTokenLatency() { return firstTokenLatency; }
+    public void setFirstTokenLatency(Duration firstTokenLatency) { this.firstTokenLatency = firstTokenLatency; }
+
+    public int getTokensPerSecond() { return tokensPerSecond; }
+    public void setTokensPerSecond(int tokensPerSecond) { this.tokensPerSecond = tokensPerSecond; }
+
+    public int getResponseTokens() { return responseTokens; }
+    public void setResponseTokens(int responseTokens) { this.responseTokens = responseTokens; }
+
+    public double getErrorRate() { return errorRate; }
+    public void setErrorRate(double errorRate) { this.errorRate = errorRate; }
+
+    public double getRateLimitRate() { return rateLimitRate; }
+    public void setRateLimitRate(double rateLimitRate) { this.rateLimitRate = rateLimitRate; }
+}
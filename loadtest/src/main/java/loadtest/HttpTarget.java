@@ -0,0 +1,92 @@
+package loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drives a running application through {@code POST /api/agent/chat}, one conversation per
+ * session, and reads its threads and heap from {@code /actuator/prometheus}.
+ * <p>
+ * Start the application with the loadtest jar on its classpath and
+ * {@code agent.fake-gemini.enabled=true}, or the calls reach the real model.
+ * </p>
+ */
+final class HttpTarget implements LoadTarget {
+    private static final String CONVERSATION_HEADER = "X-Conversation-Id";
+    // The controller answers failed graph runs with 200 and this prefix
+    private static final String GRAPH_ERROR = "Error executing graph";
+    private static final Pattern HEAP_USED = Pattern.compile("^jvm_memory_used_bytes\\{[^}]*area=\"heap\"[^}]*} (\\S+)", Pattern.MULTILINE);
+    private static final Pattern THREADS = Pattern.compile("^jvm_threads_live_threads(?:\\{[^}]*})? (\\S+)", Pattern.MULTILINE);
+
+    private final URI chat;
+    private final URI metrics;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient client;
+
+    HttpTarget(String baseUrl) {
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.chat = URI.create(base + "/api/agent/chat");
+        this.metrics = URI.create(base + "/actuator/prometheus");
+        this.client = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @Override
+    public Outcome call(int session, long turn) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(chat)
+                .header("Content-Type", "text/plain")
+                .header(CONVERSATION_HEADER, "load-" + session)
+                .POST(HttpRequest.BodyPublishers.ofString("Load test session " + session + ", turn " + turn))
+                .build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 429) return Outcome.REJECTED;
+            if (response.statusCode() != 200 || response.body().startsWith(GRAPH_ERROR)) return Outcome.ERROR;
+            return Outcome.OK;
+        } catch (IOException e) {
+            return Outcome.ERROR;
+        }
+    }
+
+    @Override
+    public Resources resources() {
+        try {
+            String body = client.send(HttpRequest.newBuilder(metrics).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            return new Resources((long) sum(THREADS, body), (long) sum(HEAP_USED, body));
+        } catch (IOException e) {
+            return new Resources(-1, -1); // no actuator; the report leaves the columns empty
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Resources(-1, -1);
+        }
+    }
+
+    // Heap is reported per memory pool, so the samples are added up
+    private static double sum(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        double total = 0;
+        boolean found = false;
+        while (matcher.find()) {
+            total += Double.parseDouble(matcher.group(1));
+            found = true;
+        }
+        return found ? total : -1;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        executor.close();
+    }
+}
@@ -0,0 +1,33 @@
+package loadtest;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Model response times to simulate.
+ * <ul>
+ * <li>{@link Shape#FIXED} - always the median</li>
+ * <li>{@link Shape#UNIFORM} - evenly spread between zero and twice the median</li>
+ * <li>{@link Shape#LOGNORMAL} - right-skewed like real model latency, fitted to the median and p99</li>
+ * </ul>
+ */
+public record LatencyDistribution(Shape shape, Duration median, Duration p99) {
+
+    public enum Shape { FIXED, UNIFORM, LOGNORMAL }
+
+    // z-score of the 99th percentile of a standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    public Duration sample(RandomGenerator random) {
+        long medianNanos = median.toNanos();
+        if (medianNanos <= 0) return Duration.ZERO;
+        return switch (shape) {
+            case FIXED -> median;
+            case UNIFORM -> Duration.ofNanos((long) (random.nextDouble() * 2 * medianNanos));
+            case LOGNORMAL -> {
+                double sigma = Math.log((double) Math.max(p99.toNanos(), medianNanos) / medianNanos) / Z_99;
+                yield Duration.ofNanos((long) (medianNanos * Math.exp(sigma * random.nextGaussian())));
+            }
+        };
+    }
+}
@@ -0,0 +1,193 @@
+package loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Closed-loop load driver: each stage runs a fixed number of sessions, each sending its next
+ * turn as soon as the previous one returns, and reports what the target sustained.
+ * <p>
+ * Options: {@code --target=engine|http} (engine), {@code --url=} (http://localhost:8080),
+ * {@code --stages=1,8,32,128}, {@code --stage-duration=30s}, {@code --warmup=5s} per stage,
+ * {@code --out=report.json}. In engine mode every other {@code --key=value} is passed to the
+ * embedded application, e.g. {@code --agent.fake-gemini.latency-median=200ms}.
+ * </p>
+ * <p>
+ * Throughput and latency percentiles count successful turns only; rejected (429) and failed
+ * turns are reported as counts, since they return early and would flatter the latency.
+ * </p>
+ */
+public final class LoadDriver {
+
+    record Options(String target, String url, List<Integer> stages, Duration stageDuration, Duration warmup,
+                   Path out, List<String> springArgs) {}
+
+    record StageResult(int sessions, double seconds, long ok, long rejected, long errors, double throughput,
+                       double p50Millis, double p99Millis, double p999Millis, double maxMillis,
+                       long peakThreads, long peakHeapMb) {}
+
+    record Report(String target, Instant startedAt, Map<String, Object> settings, List<StageResult> stages) {}
+
+    // What one session saw during the measured part of a stage
+    private static final class SessionStats {
+        long[] latencies = new long[1024];
+        int count;
+        long rejected;
+        long errors;
+
+        void ok(long nanos) {
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = nanos;
+        }
+    }
+
+    private LoadDriver() {}
+
+    public static void main(String[] args) throws Exception {
+        Options options = parse(args);
+        Instant startedAt = Instant.now();
+        List<StageResult> results = new ArrayList<>();
+        try (LoadTarget target = options.target().equals("http")
+                ? new HttpTarget(options.url())
+                : new EngineTarget(options.springArgs())) {
+            for (int sessions : options.stages()) {
+                if (!options.warmup().isZero()) runStage(target, sessions, options.warmup());
+                StageResult result = runStage(target, sessions, options.stageDuration());
+                results.add(result);
+                printRow(result, results.size() == 1);
+            }
+        }
+
+        if (options.out() != null) {
+            Map<String, Object> settings = Map.of(
+                    "stageDuration", options.stageDuration().toString(),
+                    "warmup", options.warmup().toString(),
+                    "args", options.springArgs());
+            new ObjectMapper().findAndRegisterModules()
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .writerWithDefaultPrettyPrinter()
+                    .writeValue(options.out().toFile(), new Report(options.target(), startedAt, settings, results));
+            System.out.println("Report written to " + options.out());
+        }
+        System.exit(0); // the embedded application leaves non-daemon threads behind
+    }
+
+    private static StageResult runStage(LoadTarget target, int sessions, Duration duration)
+            throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<SessionStats>> futures = new ArrayList<>(sessions);
+        long started = System.nanoTime();
+        try (ResourceSampler sampler = new ResourceSampler(target);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                int session = i;
+                futures.add(executor.submit(() -> session(target, session, running)));
+            }
+            Thread.sleep(duration);
+            running.set(false);
+            // Closing the executor waits for the turns in flight to finish
+            executor.close();
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            List<SessionStats> stats = new ArrayList<>(sessions);
+            for (Future<SessionStats> future : futures) {
+                stats.add(future.resultNow());
+            }
+            return summarize(sessions, seconds, stats, sampler);
+        }
+    }
+
+    private static SessionStats session(LoadTarget target, int session, AtomicBoolean running)
+            throws InterruptedException {
+        SessionStats stats = new SessionStats();
+        for (long turn = 0; running.get(); turn++) {
+            long start = System.nanoTime();
+            LoadTarget.Outcome outcome = target.call(session, turn);
+            long elapsed = System.nanoTime() - start;
+            switch (outcome) {
+                case OK -> stats.ok(elapsed);
+                case REJECTED -> stats.rejected++;
+                case ERROR -> stats.errors++;
+            }
+        }
+        return stats;
+    }
+
+    private static StageResult summarize(int sessions, double seconds, List<SessionStats> stats, ResourceSampler sampler) {
+        int total = stats.stream().mapToInt(s -> s.count).sum();
+        long[] latencies = new long[total];
+        int offset = 0;
+        long rejected = 0;
+        long errors = 0;
+        for (SessionStats s : stats) {
+            System.arraycopy(s.latencies, 0, latencies, offset, s.count);
+            offset += s.count;
+            rejected += s.rejected;
+            errors += s.errors;
+        }
+        Arrays.sort(latencies);
+        long peakHeap = sampler.peakHeapBytes();
+        return new StageResult(sessions, seconds, total, rejected, errors, total / seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                total == 0 ? 0 : latencies[total - 1] / 1e6,
+                sampler.peakThreads(), peakHeap < 0 ? -1 : peakHeap / (1024 * 1024));
+    }
+
+    // Nearest-rank percentile of sorted nanos, in milliseconds
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, rank)] / 1e6;
+    }
+
+    private static void printRow(StageResult r, boolean header) {
+        if (header) {
+            System.out.printf("%8s %10s %8s %8s %10s %10s %10s %10s %8s %9s%n",
+                    "sessions", "ok", "rejected", "errors", "turns/s", "p50 ms", "p99 ms", "p99.9 ms", "threads", "heap MB");
+        }
+        System.out.printf("%8d %10d %8d %8d %10.1f %10.1f %10.1f %10.1f %8d %9d%n",
+                r.sessions(), r.ok(), r.rejected(), r.errors(), r.throughput(),
+                r.p50Millis(), r.p99Millis(), r.p999Millis(), r.peakThreads(), r.peakHeapMb());
+    }
+
+    static Options parse(String[] args) {
+        String target = "engine";
+        String url = "http://localhost:8080";
+        List<Integer> stages = List.of(1, 8, 32, 128);
+        Duration stageDuration = Duration.ofSeconds(30);
+        Duration warmup = Duration.ofSeconds(5);
+        Path out = null;
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = eq < 0 ? arg : arg.substring(0, eq);
+            String value = eq < 0 ? "" : arg.substring(eq + 1);
+            switch (key) {
+                case "--target" -> target = value;
+                case "--url" -> url = value;
+                case "--stages" -> stages = Arrays.stream(value.split(",")).map(String::trim).map(Integer::valueOf).toList();
+                case "--stage-duration" -> stageDuration = DurationStyle.detectAndParse(value);
+                case "--warmup" -> warmup = DurationStyle.detectAndParse(value);
+                case "--out" -> out = Path.of(value);
+                default -> springArgs.add(arg);
+            }
+        }
+        if (!target.equals("engine") && !target.equals("http")) {
+            throw new IllegalArgumentException("--target must be engine or http, was " + target);
+        }
+        return new Options(target, url, stages, stageDuration, warmup, out, List.copyOf(springArgs));
+    }
+}
@@ -0,0 +1,19 @@
+package loadtest;
+
+/**
+ * What the driver puts under load: one call is one chat turn of one session.
+ */
+interface LoadTarget extends AutoCloseable {
+
+    enum Outcome { OK, REJECTED, ERROR }
+
+    // Live threads and used heap of the process serving the calls
+    record Resources(long threads, long heapUsedBytes) {}
+
+    Outcome call(int session, long turn) throws InterruptedException;
+
+    Resources resources();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,74 @@
+package loadtest;
+
+import config.AgentFlowConfiguration;
+import config.LlmConfiguration;
+import dsl.FlowBuilder;
+import dsl.WorkflowDefinition;
+import llm.LlmClient;
+import llm.LlmRequest;
+import node.DeltaAgentNode;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import state.AgentState;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The framework alone, without the web layer, for driving {@code WorkflowEngine.run} directly.
+ * Its one workflow mirrors the agent graph: a single node that sends the input to the model.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@Import({AgentFlowConfiguration.class, LlmConfiguration.class})
+public class LoadTestApplication {
+    static final String WORKFLOW_ID = "load";
+
+    public static final class LoadState extends AgentState {
+        public LoadState(Map<String, Object> initData) {
+            super(initData);
+        }
+
+        public String getInput() { return this.<String>value("input").orElse(""); }
+    }
+
+    public static final class ChatNode implements DeltaAgentNode<LoadState> {
+        private final LlmClient llmClient;
+
+        public ChatNode(LlmClient llmClient) {
+            this.llmClient = llmClient;
+        }
+
+        @Override
+        public Map<String, Object> update(LoadState state) {
+            // Uncached, like real traffic where every prompt differs
+            return Map.of("response", llmClient.call(LlmRequest.of("chat", state.getInput()).noCache()));
+        }
+    }
+
+    public static final class LoadWorkflow implements WorkflowDefinition<LoadState> {
+        @Override public String getWorkflowId() { return WORKFLOW_ID; }
+        @Override public String getVersion() { return "1.0.0"; }
+        @Override public void define(FlowBuilder<LoadState> builder) { builder.startWith(ChatNode.class); }
+        @Override public Class<LoadState> getStateType() { return LoadState.class; }
+        @Override public Function<Map<String, Object>, LoadState> stateFactory() { return LoadState::new; }
+    }
+
+    @Bean
+    public ChatClient chatClient(ChatClient.Builder builder) {
+        return builder.build();
+    }
+
+    @Bean
+    public ChatNode chatNode(LlmClient llmClient) {
+        return new ChatNode(llmClient);
+    }
+
+    @Bean
+    public LoadWorkflow loadWorkflow() {
+        return new LoadWorkflow();
+    }
+}
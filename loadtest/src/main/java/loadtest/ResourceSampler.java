@@ -0,0 +1,47 @@
+package loadtest;
+
+import java.time.Duration;
+
+/**
+ * Polls the target's threads and heap while a stage runs and keeps the peaks.
+ */
+final class ResourceSampler implements AutoCloseable {
+    private static final Duration INTERVAL = Duration.ofMillis(500);
+
+    private final LoadTarget target;
+    private final Thread poller;
+    private volatile long peakThreads = -1;
+    private volatile long peakHeapBytes = -1;
+
+    ResourceSampler(LoadTarget target) {
+        this.target = target;
+        this.poller = Thread.ofVirtual().name("load-sampler").start(this::poll);
+    }
+
+    long peakThreads() { return peakThreads; }
+
+    long peakHeapBytes() { return peakHeapBytes; }
+
+    private void poll() {
+        while (!Thread.currentThread().isInterrupted()) {
+            LoadTarget.Resources sample = target.resources();
+            peakThreads = Math.max(peakThreads, sample.threads());
+            peakHeapBytes = Math.max(peakHeapBytes, sample.heapUsedBytes());
+            try {
+                Thread.sleep(INTERVAL);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        poller.interrupt();
+        try {
+            poller.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,38 +1,151 @@
 package com.eainde.agent;
 
+import admission.AdmissionController;
+import admission.Bulkhead;
+import admission.OverloadException;
+import cache.BoundedCache;
+import memory.ConversationMemory;
 import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.NodeOutput;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/agent")
 public class AgentController {
+    // Admission bucket of the agent graph
+    private static final String WORKFLOW_ID = "agent";
+    // Clients that send this header continue the same conversation across requests
+    private static final String CONVERSATION_HEADER = "X-Conversation-Id";
 
     // Inject CompiledGraph instead of Graph
     private final CompiledGraph<SimpleAgentState> agentGraph;
+    private final TokenStreams tokenStreams;
+    private final AdmissionController admission; // null when agent.admission.enabled=false
+    // Conversation state by conversation id, between the requests of a client
+    private final BoundedCache<String, Object> conversations = new BoundedCache<>(10_000, Duration.ofHours(1));
 
-    public AgentController(CompiledGraph<SimpleAgentState> agentGraph) {
+    public AgentController(CompiledGraph<SimpleAgentState> agentGraph, TokenStreams tokenStreams,
+                           ObjectProvider<AdmissionController> admission) {
         this.agentGraph = agentGraph;
+        this.tokenStreams = tokenStreams;
+        this.admission = admission.getIfAvailable();
     }
 
     @PostMapping("/chat")
-    public String chat(@RequestBody String userMessage) {
-        try {
-            Map<String, Object> inputs = Map.of("input", userMessage);
+    public String chat(@RequestBody String userMessage,
+                       @RequestHeader(name = CONVERSATION_HEADER, required = false) String conversationId) {
+        try (Bulkhead.Permit ignored = admit()) {
+            Map<String, Object> inputs = inputs(userMessage, conversationId);
 
             System.out.println("--- Starting Graph Execution ---");
 
             // Invoke the graph
             Optional<SimpleAgentState> result = agentGraph.invoke(inputs);
+            result.ifPresent(state -> remember(conversationId, state));
 
             return result.map(SimpleAgentState::getLastResponse)
                     .orElse("Error: No response generated.");
 
+        } catch (OverloadException e) {
+            throw e;
         } catch (Exception e) {
+            OverloadException overload = overloadCause(e);
+            if (overload != null) throw overload;
             e.printStackTrace();
             return "Error executing graph: " + e.getMessage();
         }
     }
+
+    /**
+     * Server-Sent Events variant of {@link #chat(String, String)}.
+     * Emits {@code token} events while Gemini generates, a {@code node} event each time a graph
+     * step completes, and a final {@code done} event carrying the full response.
+     */
+    @PostMapping(path = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody String userMessage,
+                                 @RequestHeader(name = CONVERSATION_HEADER, required = false) String conversationId) {
+        // Admitted before the stream opens, so an overloaded server still answers with a plain 429
+        Bulkhead.Permit permit = admit();
+        SseEmitter emitter = new SseEmitter(Duration.ofMinutes(5).toMillis());
+        String streamId = UUID.randomUUID().toString();
+        tokenStreams.register(streamId, token -> send(emitter, "token", token));
+
+        // The graph runs off the request thread so the servlet can flush events as they arrive
+        Thread.ofVirtual().name("agent-stream-" + streamId).start(() -> {
+            try (permit) {
+                Map<String, Object> inputs = inputs(userMessage, conversationId);
+                inputs.put(TokenStreams.STREAM_ID, streamId);
+                SimpleAgentState last = null;
+                for (NodeOutput<SimpleAgentState> output : agentGraph.stream(inputs)) {
+                    send(emitter, "node", output.node());
+                    last = output.state();
+                }
+                if (last != null) remember(conversationId, last);
+                String response = Optional.ofNullable(last).map(SimpleAgentState::getLastResponse).orElse("");
+                send(emitter, "done", response);
+                emitter.complete();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            } finally {
+                tokenStreams.remove(streamId);
+            }
+        });
+        return emitter;
+    }
+
+    @ExceptionHandler(OverloadException.class)
+    public ResponseEntity<String> overloaded(OverloadException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(e.getMessage());
+    }
+
+    private Map<String, Object> inputs(String userMessage, String conversationId) {
+        Map<String, Object> inputs = new HashMap<>();
+        inputs.put("input", userMessage);
+        Object conversation = conversationId == null ? null : conversations.get(conversationId);
+        if (conversation != null) inputs.put(ConversationMemory.STATE_KEY, conversation);
+        return inputs;
+    }
+
+    private void remember(String conversationId, SimpleAgentState state) {
+        if (conversationId == null) return;
+        state.value(ConversationMemory.STATE_KEY).ifPresent(conversation -> conversations.put(conversationId, conversation));
+    }
+
+    // null when admission control is off; try-with-resources skips closing it
+    private Bulkhead.Permit admit() {
+        return admission == null ? null : admission.acquire(WORKFLOW_ID);
+    }
+
+    // Rate-limit rejections from inside the graph arrive wrapped by the graph runtime
+    private static OverloadException overloadCause(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof OverloadException overload) return overload;
+        }
+        return null;
+    }
+
+    private static void send(SseEmitter emitter, String event, String data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException e) {
+            // Client went away: the run is aborted rather than finished for nobody. Thrown from the
+            // token sink this fails the agent node; thrown from the stream loop it stops the graph.
+            throw new IllegalStateException("SSE client disconnected", e);
+        }
+    }
 }
@@ -1,9 +1,13 @@
 package com.eainde.agent;
 
+import config.AgentFlowConfiguration;
+import config.LlmConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+@Import({AgentFlowConfiguration.class, LlmConfiguration.class})
 public class Application {
   public static void main(String[] args) {
     SpringApplication.run(Application.class, args);
@@ -0,0 +1,63 @@
+package com.eainde.agent;
+
+import engine.WorkflowEngine;
+import job.JobRecord;
+import job.JobStatus;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Fire-and-poll access to registered workflows: submit returns at once with a run id,
+ * the run happens on the background workers, and clients poll for its status and result.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final WorkflowEngine workflowEngine;
+
+    public JobController(WorkflowEngine workflowEngine) {
+        this.workflowEngine = workflowEngine;
+    }
+
+    @PostMapping("/{workflowId}")
+    public ResponseEntity<Map<String, String>> submit(@PathVariable String workflowId,
+                                                      @RequestBody Map<String, Object> input) {
+        String runId = workflowEngine.submit(workflowId, workflowEngine.newState(workflowId, input));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + runId))
+                .body(Map.of("runId", runId));
+    }
+
+    @GetMapping("/{runId}")
+    public ResponseEntity<Map<String, Object>> status(@PathVariable String runId) {
+        return workflowEngine.job(runId)
+                .map(job -> ResponseEntity.ok(Map.<String, Object>of(
+                        "runId", job.runId(),
+                        "workflowId", job.workflowId(),
+                        "status", job.status(),
+                        "submittedAt", job.submittedAt().toString(),
+                        "updatedAt", job.updatedAt().toString())))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{runId}/result")
+    public ResponseEntity<Object> result(@PathVariable String runId) {
+        JobRecord job = workflowEngine.job(runId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.status() == JobStatus.FAILED) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", job.error()));
+        }
+        if (job.status() != JobStatus.SUCCEEDED) {
+            // Not done yet: tell the client where to keep polling
+            return ResponseEntity.status(HttpStatus.ACCEPTED).location(URI.create("/api/jobs/" + runId)).build();
+        }
+        return ResponseEntity.ok(job.result());
+    }
+}
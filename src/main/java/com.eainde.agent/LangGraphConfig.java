@@ -1,15 +1,23 @@
 package com.eainde.agent;
 
+import llm.LlmClient;
+import llm.LlmRequest;
+import memory.Conversation;
+import memory.ConversationMemory;
+import memory.Turn;
 import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.GraphStateException;
 import org.bsc.langgraph4j.StateGraph;
 import org.bsc.langgraph4j.action.AsyncEdgeAction; // UPDATED IMPORT
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import static org.bsc.langgraph4j.StateGraph.END;
 import static org.bsc.langgraph4j.StateGraph.START;
@@ -18,23 +26,34 @@ import static org.bsc.langgraph4j.StateGraph.START;
 public class LangGraphConfig {
 
     @Bean
-    public ChatClient chatClient(ChatClient.Builder builder) {
+    public ChatClient chatClient(ChatClient.Builder builder, @Value("${agent.llm.system-prompt}") String systemPrompt) {
         return builder
-                .defaultSystem("You are a helpful assistant. If the user asks about the weather, strictly reply with 'CALL_TOOL: WEATHER'.")
+                .defaultSystem(systemPrompt)
                 .build();
     }
 
     @Bean
-    public CompiledGraph<SimpleAgentState> agentGraph(ChatClient chatClient) throws GraphStateException {
+    public CompiledGraph<SimpleAgentState> agentGraph(LlmClient llmClient, TokenStreams tokenStreams,
+                                                     ConversationMemory memory) throws GraphStateException {
         StateGraph<SimpleAgentState> workflow = new StateGraph<>(SimpleAgentState::new);
 
         // --- NODE 1: AGENT ---
         workflow.addNode("agent", state -> {
             String input = state.getInput();
-            String response = chatClient.prompt().user(input).call().content();
+            // The prompt carries the conversation so far, summarized to stay within the memory budget
+            Conversation conversation = memory.add(memory.load(state), Turn.Role.USER, input);
+            LlmRequest request = LlmRequest.of("agent", memory.render(conversation));
+            // Goes through the framework's LLM client so repeated prompts are served from cache.
+            // When a streaming client is attached, tokens are forwarded as Gemini produces them.
+            String response = tokenStreams.sinkFor(state.getStreamId())
+                    .map(sink -> llmClient.stream(request).doOnNext(sink).collect(Collectors.joining()).block())
+                    .orElseGet(() -> llmClient.call(request));
             System.out.println(response);
+            Map<String, Object> update = new HashMap<>(ConversationMemory.toState(
+                    memory.add(conversation, Turn.Role.ASSISTANT, response)));
+            update.put("response", response);
             // Must return CompletableFuture for Async Node
-            return CompletableFuture.completedFuture(Map.of("response", (Object) response));
+            return CompletableFuture.completedFuture(update);
         });
 
         // --- NODE 2: TOOLS ---
@@ -20,4 +20,8 @@ public class SimpleAgentState extends AgentState {
     public String getLastResponse() {
         return this.<String>value("response").orElse(null);
     }
+
+    public String getStreamId() {
+        return this.<String>value(TokenStreams.STREAM_ID).orElse(null);
+    }
 }
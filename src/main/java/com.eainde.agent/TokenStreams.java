@@ -0,0 +1,29 @@
+package com.eainde.agent;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Routes LLM tokens produced inside the graph to the SSE connection that started the run.
+// Only the stream id travels in the graph state; the sink itself stays out of it.
+@Component
+public class TokenStreams {
+    public static final String STREAM_ID = "stream_id";
+
+    private final Map<String, Consumer<String>> sinks = new ConcurrentHashMap<>();
+
+    public void register(String streamId, Consumer<String> sink) {
+        sinks.put(streamId, sink);
+    }
+
+    public void remove(String streamId) {
+        sinks.remove(streamId);
+    }
+
+    public Optional<Consumer<String>> sinkFor(String streamId) {
+        return streamId == null ? Optional.empty() : Optional.ofNullable(sinks.get(streamId));
+    }
+}
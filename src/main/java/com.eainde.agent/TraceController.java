@@ -0,0 +1,55 @@
+package com.eainde.agent;
+
+import observability.RunTrace;
+import observability.TraceExporter;
+import observability.TraceRecorder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The slowest recorded workflow runs, and their timelines exported as Chrome trace-event
+ * JSON (chrome://tracing, Perfetto) or OTLP/JSON into the configured export directory.
+ */
+@RestController
+@RequestMapping("/api/traces")
+public class TraceController {
+
+    private final TraceRecorder traceRecorder;
+
+    public TraceController(TraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
+
+    @GetMapping
+    public List<Map<String, Object>> slowest() {
+        return traceRecorder.slowest().stream()
+                .map(trace -> Map.<String, Object>of(
+                        "runId", trace.runId(),
+                        "workflowId", trace.workflowId(),
+                        "durationMs", trace.durationNanos() / 1_000_000.0,
+                        "spans", trace.spans().size(),
+                        "outcome", trace.failure() == null ? "success" : trace.failure()))
+                .toList();
+    }
+
+    @GetMapping("/{runId}")
+    public ResponseEntity<List<RunTrace.Span>> spans(@PathVariable String runId) {
+        return traceRecorder.find(runId)
+                .map(trace -> ResponseEntity.ok(trace.spans()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{runId}/export")
+    public ResponseEntity<Map<String, String>> export(@PathVariable String runId,
+                                                      @RequestParam(defaultValue = "chrome") String format) throws IOException {
+        TraceExporter.Format exportFormat = TraceExporter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        return traceRecorder.export(runId, exportFormat)
+                .map(file -> ResponseEntity.ok(Map.of("file", file.toAbsolutePath().toString())))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}